@@ -2,10 +2,12 @@ public class AIFragment extends Fragment {
 
     // 用于用户输入的编辑框
     private EditText userInputET; 
-    // 用于添加消息视图的线性布局
-    private LinearLayout chatContainer; 
-    // 聊天内容的滚动视图
-    private ScrollView chatScrollView; 
+    // 显示对话记录的列表
+    private RecyclerView chatRecyclerView; 
+    // 对话记录的适配器
+    private ChatAdapter chatAdapter; 
+    // 界面上显示的对话记录，最多保留 MAX_CHAT_MESSAGES 条
+    private final List<ChatMessage> chatMessages = new ArrayList<>(); 
     // 发送请求的按钮
     private Button sendButton; 
     // 主活动的引用
@@ -16,10 +18,13 @@ public class AIFragment extends Fragment {
     private List<Map<String, String>> messagesList = new ArrayList<>(); 
     // 当前会话的ID
     private String currentSessionId; 
-    // 选中的事件，键为事件ID，值为事件对象
-    private Map<String, Event> selectedEvents = new HashMap<>(); 
-    // 事件视图，键为事件ID，值为事件对应的视图
-    private Map<String, View> eventViews = new HashMap<>(); 
+    // AI 网关客户端
+    private BlueLmClient aiClient; 
+
+    // 界面上最多保留的消息数，更早的消息从列表中移除，长时间对话的内存占用不再增长
+    private static final int MAX_CHAT_MESSAGES = 200;
+    // 相同对话内容的回复缓存 1 小时，重复提问直接从本地返回
+    private static final long CHAT_CACHE_TTL_MS = 60 * 60 * 1000L;
 
     /**
      * 核心函数：创建Fragment的视图
@@ -36,11 +41,12 @@ public class AIFragment extends Fragment {
         View view = inflater.inflate(R.layout.fragment_ai, container, false); 
         // 获取主活动的引用
         mainActivity = (MainActivity) getActivity(); 
+        // 获取 AI 网关客户端
+        aiClient = BlueLmClient.getInstance(requireContext()); 
 
         // 初始化视图
         userInputET = view.findViewById(R.id.userInputET);
-        chatScrollView = view.findViewById(R.id.chatScrollView);
-        chatContainer = view.findViewById(R.id.chatContainer);
+        chatRecyclerView = createChatList(view.findViewById(R.id.chatScrollView));
         sendButton = view.findViewById(R.id.sendRequestBtn);
 
         // 设置默认提示词
@@ -72,94 +78,46 @@ public class AIFragment extends Fragment {
     }
 
     /**
-     * 调用BlueHeart AI获取建议，发送HTTP请求并处理响应
-     * @param messages 消息列表
-     * @return AI的回复内容
-     * @throws IOException 网络请求异常
-     * @throws NoSuchAlgorithmException 加密算法异常
-     * @throws InvalidKeyException 密钥异常
-     * @throws JSONException JSON解析异常
+     * 用对话列表替换布局中的滚动视图，沿用其位置和尺寸
+     * @param chatScrollView 布局中原有的滚动视图
+     * @return 对话列表
      */
-    public String callBlueHeartAIForAdvice(List<Map<String, String>> messages)
-            throws IOException, NoSuchAlgorithmException, InvalidKeyException, JSONException {
-
-        // 应用ID
-        String appId = "2025510478"; 
-        // 应用密钥
-        String appKey = "VLJsSSuMkjNDWLeV"; 
-        // AI接口的URL
-        String url = "https://api-ai.vivo.com.cn/vivogpt/completions"; 
-        // 请求ID
-        String requestId = UUID.randomUUID().toString(); 
-
-        // 构建请求体
-        JSONObject requestBody = new JSONObject();
-        JSONArray messagesArray = new JSONArray();
-
-        // 将消息列表添加到请求体中
-        for (Map<String, String> message : messages) {
-            JSONObject msgObj = new JSONObject();
-            msgObj.put("role", message.get("role"));
-            msgObj.put("content", message.get("content"));
-            messagesArray.put(msgObj);
-        }
-
-        requestBody.put("messages", messagesArray);
-        requestBody.put("model", "vivo-BlueLM-TB-Pro");
-        requestBody.put("sessionId", UUID.randomUUID().toString()); // 使用新的会话ID
-
-        // 生成签名头
-        Map<String, String> headers = generateAuthHeaders(appId, appKey, "POST", "/vivogpt/completions",
-                "requestId=" + requestId);
-
-        // 发送请求
-        HttpURLConnection connection = (HttpURLConnection) new URL(url + "?requestId=" + requestId).openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "application/json");
-
-        // 设置请求头
-        for (Map.Entry<String, String> entry : headers.entrySet()) {
-            connection.setRequestProperty(entry.getKey(), entry.getValue());
-        }
-
-        connection.setDoOutput(true);
-        try (OutputStream os = connection.getOutputStream()) {
-            byte[] input = requestBody.toString().getBytes(StandardCharsets.UTF_8);
-            os.write(input, 0, input.length);
-        }
-
-        // 获取响应
-        int responseCode = connection.getResponseCode();
-        if (responseCode == HttpURLConnection.HTTP_OK) {
-            try (BufferedReader br = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
-                StringBuilder response = new StringBuilder();
-                String responseLine;
-                while ((responseLine = br.readLine()) != null) {
-                    response.append(responseLine.trim());
-                }
-
-                // 解析响应内容
-                JSONObject jsonResponse = new JSONObject(response.toString());
-                if (jsonResponse.getInt("code") == 0) {
-                    return jsonResponse.getJSONObject("data").getString("content");
-                } else {
-                    String errorMsg = jsonResponse.getString("msg");
-                    throw new IOException("AI服务错误: " + errorMsg);
+    private RecyclerView createChatList(ScrollView chatScrollView) {
+        chatAdapter = new ChatAdapter(new ChatAdapter.Callbacks() {
+            @Override
+            public void onEditEvent(ChatMessage message, Event event) {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                    editEvent(message, event);
                 }
             }
-        } else {
-            // 读取错误流
-            try (BufferedReader br = new BufferedReader(
-                    new InputStreamReader(connection.getErrorStream(), StandardCharsets.UTF_8))) {
-                StringBuilder errorResponse = new StringBuilder();
-                String line;
-                while ((line = br.readLine()) != null) {
-                    errorResponse.append(line);
+
+            @Override
+            public void onAddSelectedEvents(ChatMessage message) {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                    addSelectedEventsToCalendar(message);
                 }
-                throw new IOException("HTTP错误: " + responseCode + "\n" + errorResponse);
             }
-        }
+        });
+
+        RecyclerView recyclerView = new RecyclerView(requireContext());
+        LinearLayoutManager layoutManager = new LinearLayoutManager(requireContext());
+        // 新消息出现在底部
+        layoutManager.setStackFromEnd(true);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setAdapter(chatAdapter);
+        recyclerView.setId(chatScrollView.getId());
+        recyclerView.setPadding(chatScrollView.getPaddingLeft(), chatScrollView.getPaddingTop(),
+                chatScrollView.getPaddingRight(), chatScrollView.getPaddingBottom());
+        recyclerView.setClipToPadding(false);
+
+        ViewGroup parent = (ViewGroup) chatScrollView.getParent();
+        int index = parent.indexOfChild(chatScrollView);
+        parent.removeViewAt(index);
+        parent.addView(recyclerView, index, chatScrollView.getLayoutParams());
+
+        // 视图重建时恢复已有的对话记录
+        chatAdapter.submitList(new ArrayList<>(chatMessages));
+        return recyclerView;
     }
 
     /**
@@ -168,121 +126,62 @@ public class AIFragment extends Fragment {
      * @param content 消息的内容
      */
     private void addMessageToChat(String role, String content) {
-        if (getContext() == null) return;
-
-        LayoutInflater inflater = LayoutInflater.from(getContext());
-        View messageView;
-
         if ("user".equals(role)) {
-            // 用户消息布局
-            messageView = inflater.inflate(R.layout.user_message_layout, chatContainer, false);
-            TextView userMessage = messageView.findViewById(R.id.userMessageTV);
-            userMessage.setText(content);
+            appendChatMessage(ChatMessage.user(content));
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            // 事件只在消息创建时解析一次
+            appendChatMessage(ChatMessage.assistant(content, parseEvents(content)));
         } else {
-            // AI回复布局
-            messageView = inflater.inflate(R.layout.ai_response_layout, chatContainer, false);
-            TextView aiMessage = messageView.findViewById(R.id.aiMessageTV);
-            LinearLayout eventsContainer = messageView.findViewById(R.id.eventsContainer);
-            Button addBtn = messageView.findViewById(R.id.addToCalendarBtn);
-
-            // 尝试解析事件
-            List<Event> events;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                events = parseEvents(content);
-            } else {
-                events = new ArrayList<>();
-            }
-
-            if (!events.isEmpty()) {
-                // 隐藏原始文本，显示事件列表
-                aiMessage.setVisibility(View.GONE);
-                eventsContainer.setVisibility(View.VISIBLE);
-                addBtn.setVisibility(View.VISIBLE);
-
-                // 添加事件到容器
-                addEventsToContainer(eventsContainer, events);
-
-                // 设置添加按钮点击事件
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                    addBtn.setOnClickListener(v -> addSelectedEventsToCalendar(events));
-                }
-            } else {
-                // 没有解析出事件，显示原始文本
-                aiMessage.setVisibility(View.VISIBLE);
-                eventsContainer.setVisibility(View.GONE);
-                addBtn.setVisibility(View.GONE);
-                aiMessage.setText(content);
-            }
+            appendChatMessage(ChatMessage.assistant(content, null));
         }
-
-        // 将消息视图添加到聊天容器
-        chatContainer.addView(messageView);
-        // 滚动到聊天界面底部
-        chatScrollView.post(() -> chatScrollView.fullScroll(View.FOCUS_DOWN));
     }
 
     /**
-     * 将事件添加到事件容器中
-     * @param container 事件容器
-     * @param events 事件列表
+     * 将一条消息追加到对话记录末尾，超出上限时移除最早的消息
+     * @param message 消息
      */
-    private void addEventsToContainer(LinearLayout container, List<Event> events) {
-        // 清空容器和视图映射
-        container.removeAllViews();
-        eventViews.clear();
-        selectedEvents.clear();
-
-        LayoutInflater inflater = LayoutInflater.from(getContext());
-
-        for (Event event : events) {
-            // 填充事件布局
-            View eventView = inflater.inflate(R.layout.event_item_layout, container, false);
-
-            // 获取事件的时间和描述视图
-            TextView timeTV = eventView.findViewById(R.id.eventTimeTV);
-            TextView descTV = eventView.findViewById(R.id.eventDescTV);
-            ImageView selectBtn = eventView.findViewById(R.id.selectBtn);
-            ImageView editBtn = eventView.findViewById(R.id.editBtn);
-
-            // 设置事件信息
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                timeTV.setText(event.getStartTime() + " - " + event.getEndTime());
-            }
-            descTV.setText(event.getDescription());
-
-            // 设置选择按钮点击事件
-            selectBtn.setOnClickListener(v -> {
-                if (selectedEvents.containsKey(event.getId())) {
-                    // 取消选择
-                    selectBtn.setImageResource(R.drawable.ic_checkbox_unchecked);
-                    selectedEvents.remove(event.getId());
-                } else {
-                    // 选择事件
-                    selectBtn.setImageResource(R.drawable.ic_checkbox_checked);
-                    selectedEvents.put(event.getId(), event);
-                }
-            });
+    private void appendChatMessage(ChatMessage message) {
+        chatMessages.add(message);
+        // 超出上限时移除最早的消息
+        if (chatMessages.size() > MAX_CHAT_MESSAGES) {
+            chatMessages.subList(0, chatMessages.size() - MAX_CHAT_MESSAGES).clear();
+        }
+        if (getContext() == null || chatAdapter == null) return;
+        // 比较在后台线程上进行，提交完成后滚动到最新的消息
+        chatAdapter.submitList(new ArrayList<>(chatMessages), this::scrollToLatest);
+    }
 
-            // 设置编辑按钮点击事件
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                editBtn.setOnClickListener(v -> editEvent(event, eventView));
+    /**
+     * 用接收完成的消息替换对话记录中 ID 相同的流式消息
+     * @param message 接收完成的消息
+     */
+    private void replaceChatMessage(ChatMessage message) {
+        for (int i = chatMessages.size() - 1; i >= 0; i--) {
+            if (chatMessages.get(i).getId() == message.getId()) {
+                chatMessages.set(i, message);
+                break;
             }
+        }
+        if (getContext() == null || chatAdapter == null) return;
+        chatAdapter.submitList(new ArrayList<>(chatMessages), this::scrollToLatest);
+    }
 
-            // 保存视图引用
-            eventViews.put(event.getId(), eventView);
-
-            // 将事件视图添加到容器
-            container.addView(eventView);
+    /**
+     * 滚动到最新的消息
+     */
+    private void scrollToLatest() {
+        if (chatRecyclerView != null && chatAdapter.getItemCount() > 0) {
+            chatRecyclerView.scrollToPosition(chatAdapter.getItemCount() - 1);
         }
     }
 
     /**
      * 编辑事件信息
+     * @param message 事件所在的日程方案
      * @param event 要编辑的事件
-     * @param eventView 事件对应的视图
      */
     @RequiresApi(api = Build.VERSION_CODES.O)
-    private void editEvent(Event event, View eventView) {
+    private void editEvent(ChatMessage message, Event event) {
         AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
         builder.setTitle("编辑事件");
 
@@ -321,12 +220,8 @@ public class AIFragment extends Fragment {
                 event.setEndTime(newEndTime);
                 event.setDescription(newDesc);
 
-                // 更新UI
-                TextView timeTV = eventView.findViewById(R.id.eventTimeTV);
-                TextView descTV = eventView.findViewById(R.id.eventDescTV);
-
-                timeTV.setText(event.getStartTime() + " - " + event.getEndTime());
-                descTV.setText(event.getDescription());
+                // 只刷新这条方案中的事件行
+                chatAdapter.notifyEventsChanged(message);
 
                 Toast.makeText(getContext(), "事件已更新", Toast.LENGTH_SHORT).show();
             } catch (DateTimeParseException e) {
@@ -339,32 +234,34 @@ public class AIFragment extends Fragment {
     }
 
     /**
-     * 将选中的事件添加到日历中
-     * @param allEvents 所有事件列表
+     * 将日程方案中选中的事件添加到日历中
+     * @param message 日程方案
      */
     @RequiresApi(api = Build.VERSION_CODES.O)
-    private void addSelectedEventsToCalendar(List<Event> allEvents) {
-        if (selectedEvents.isEmpty()) {
+    private void addSelectedEventsToCalendar(ChatMessage message) {
+        List<Event> eventsToAdd = message.getSelectedEvents();
+        if (eventsToAdd.isEmpty()) {
             Toast.makeText(getContext(), "请至少选择一个事件", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        // 获取要添加的事件列表
-        List<Event> eventsToAdd = new ArrayList<>(selectedEvents.values());
 
-        // 保存事件
-        int addedCount = 0;
-        for (Event event : eventsToAdd) {
-            try {
-                saveEventToStorage(event);
-                addedCount++;
-            } catch (Exception e) {
-                Log.e("AIFragment", "添加事件失败", e);
-            }
-        }
+        // 整批保存事件，并统计实际添加的事件中与已有日程时间冲突的事件数
+        List<Event> conflicting = new ArrayList<>();
+        int addedCount = saveEventsToStorage(eventsToAdd, conflicting);
+        int conflictCount = conflicting.size();
 
         if (addedCount > 0) {
-            Toast.makeText(getContext(), "已添加 " + addedCount + " 个事件到日历", Toast.LENGTH_SHORT).show();
+            String toastText = "已添加 " + addedCount + " 个事件到日历";
+            if (conflictCount > 0) {
+                toastText += "，其中 " + conflictCount + " 个与已有日程时间冲突";
+            }
+            // 等整批事件都写入存储后再提示，写入失败时告知用户
+            Context context = requireContext().getApplicationContext();
+            String savedMessage = toastText;
+            EventRepository.getInstance(requireActivity()).flush().whenComplete((ignored, error) ->
+                    new Handler(Looper.getMainLooper()).post(() -> Toast.makeText(context,
+                            error == null ? savedMessage : "事件保存失败，请重试", Toast.LENGTH_LONG).show()));
 
             // 刷新日历
             if (getActivity() instanceof MainActivity) {
@@ -373,11 +270,8 @@ public class AIFragment extends Fragment {
         }
 
         // 重置选择状态
-        selectedEvents.clear();
-        for (View view : eventViews.values()) {
-            ImageView selectBtn = view.findViewById(R.id.selectBtn);
-            selectBtn.setImageResource(R.drawable.ic_checkbox_unchecked);
-        }
+        message.clearSelection();
+        chatAdapter.notifyEventsChanged(message);
     }
 
     /**
@@ -395,9 +289,12 @@ public class AIFragment extends Fragment {
         // 添加用户消息到UI
         addMessageToChat("user", prompt);
 
-        // 添加格式提示（仅首次请求）
+        // 添加格式提示和空闲时段（仅首次请求）
         if (messagesList.size() == 1) { // 只有系统消息
             prompt += "\n请使用以下格式回复：\n08:00-08:30: 事件1\n09:00-10:30: 事件2\n14:00-15:30: 事件3\n";
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                prompt += buildFreeSlotsHint();
+            }
         }
 
         // 创建用户消息
@@ -415,6 +312,23 @@ public class AIFragment extends Fragment {
         userInputET.setText(""); 
     }
 
+    /**
+     * 生成未来 7 天空闲时段的提示，让 AI 优先把日程安排在空闲时间内
+     * @return 空闲时段提示文本，没有空闲时段时返回空字符串
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private String buildFreeSlotsHint() {
+        if (getActivity() == null) return "";
+
+        LocalDate today = LocalDate.now();
+        List<FreeSlotFinder.FreeSlot> freeSlots = new FreeSlotFinder(EventRepository.getInstance(getActivity()))
+                .findFreeSlots(today, today.plusDays(6), 8 * 60, 22 * 60, 30);
+        if (freeSlots.isEmpty()) {
+            return "";
+        }
+        return "我在未来 7 天的空闲时段如下，请尽量只在这些时段内安排：\n" + FreeSlotFinder.formatSlots(freeSlots);
+    }
+
     /**
      * 获取解析后的事件列表
      * @return 解析后的事件列表
@@ -432,23 +346,64 @@ public class AIFragment extends Fragment {
     }
 
     /**
-     * 异步任务类，用于发送AI请求
+     * 异步任务类，用于发送AI请求。回复以流式方式接收，每收到一段文本就追加到回复气泡中，
+     * 完整的行随即解析为事件，网关不支持流式接口时由 BlueLmClient 退回到普通请求
      */
-    private class AIRequestTask extends AsyncTask<Void, Void, String> {
+    private class AIRequestTask extends AsyncTask<Void, String, String> {
+        // 界面上正在接收的回复
+        private ChatMessage streamingMessage;
+        // 逐行解析回复中的日程，低于 Android O 时为 null
+        private PlanStreamParser planParser;
+
+        @Override
+        protected void onPreExecute() {
+            streamingMessage = ChatMessage.streaming();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                planParser = new PlanStreamParser();
+            }
+            appendChatMessage(streamingMessage);
+        }
+
         @Override
         protected String doInBackground(Void... voids) {
             try {
                 // 调用AI接口获取回复
-                return callBlueHeartAI();
+                return callBlueHeartAI(this::publishProgress);
             } catch (Exception e) {
                 return "Error: " + e.getMessage();
             }
         }
 
+        @Override
+        protected void onProgressUpdate(String... deltas) {
+            for (String delta : deltas) {
+                streamingMessage.appendStreamingText(delta);
+                if (planParser != null && planParser.append(delta)) {
+                    streamingMessage.setStreamingEvents(planParser.getEvents());
+                }
+            }
+            if (chatAdapter != null) {
+                chatAdapter.notifyStreamChanged(streamingMessage);
+                scrollToLatest();
+            }
+        }
+
         @Override
         protected void onPostExecute(String result) {
-            // 添加AI回复到UI
-            addMessageToChat("assistant", result);
+            // 用完整的回复替换接收中的气泡
+            List<Event> events = null;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                if (result.equals(planParser.getText())) {
+                    // 流式接收的内容就是完整回复，只需解析最后一行
+                    planParser.finish();
+                    events = planParser.getEvents();
+                    notifyDateError(planParser);
+                } else {
+                    // 出错或中途失败，按最终结果重新解析
+                    events = parseEvents(result);
+                }
+            }
+            replaceChatMessage(streamingMessage.finishStreaming(result, events));
 
             if (!result.startsWith("Error:")) {
                 // 添加AI回复到消息列表
@@ -469,264 +424,32 @@ public class AIFragment extends Fragment {
      */
     @RequiresApi(api = Build.VERSION_CODES.O)
     private List<Event> parseEvents(String aiResponse) {
-        Log.d("AIFragment", "开始解析AI响应: " + aiResponse);
-
-        List<Event> events = new ArrayList<>();
-        String[] lines = aiResponse.split("\n");
-        int eventCount = 0;
-        LocalDate date = LocalDate.now();
-
-        // 尝试从响应中提取日期
-        Pattern datePattern = Pattern.compile("(\\d{4}年\\d{1,2}月\\d{1,2}日|\\d{4}-\\d{2}-\\d{2})");
-        Matcher dateMatcher = datePattern.matcher(aiResponse);
-        if (dateMatcher.find()) {
-            try {
-                String dateStr = dateMatcher.group();
-                // 处理不同日期格式
-                if (dateStr.contains("年")) {
-                    date = LocalDate.parse(dateStr, DateTimeFormatter.ofPattern("yyyy年MM月dd日"));
-                } else {
-                    date = LocalDate.parse(dateStr);
-                }
-                Log.d("AIFragment", "从响应中解析到日期: " + date);
-            } catch (Exception e) {
-                Log.e("AIFragment", "日期解析错误: " + e.getMessage());
-                Toast.makeText(getContext(), "日期解析错误，使用默认日期", Toast.LENGTH_SHORT).show();
-            }
-        }
-
-        // 事件解析模式 - 支持多种时间格式
-        Pattern eventPattern = Pattern.compile(
-                "(\\d{1,2})[:：](\\d{2})\\s*[-~—]\\s*(\\d{1,2})[:：](\\d{2})\\s*[:：]?\\s*(.+)"
-        );
-
-        for (String line : lines) {
-            Matcher matcher = eventPattern.matcher(line);
-            if (matcher.find()) {
-                try {
-                    // 解析时间
-                    int startHour = Integer.parseInt(matcher.group(1));
-                    int startMin = Integer.parseInt(matcher.group(2));
-                    int endHour = Integer.parseInt(matcher.group(3));
-                    int endMin = Integer.parseInt(matcher.group(4));
-                    String description = matcher.group(5).trim();
-
-                    // 创建时间对象
-                    LocalTime startTime = LocalTime.of(startHour, startMin);
-                    LocalTime endTime = LocalTime.of(endHour, endMin);
-
-                    // 创建事件
-                    Event event = new Event(date, startTime, endTime, description);
-                    events.add(event);
-                    eventCount++;
-
-                    Log.d("AIFragment", "解析到事件: " + event);
-
-                } catch (Exception e) {
-                    Log.e("AIFragment", "事件解析错误: " + line, e);
-                }
-            } else {
-                // 尝试其他格式：没有冒号的时间格式 (如 0800-0930)
-                Pattern altPattern = Pattern.compile("(\\d{2})(\\d{2})\\s*[-~—]\\s*(\\d{2})(\\d{2})\\s*[:：]?\\s*(.+)");
-                Matcher altMatcher = altPattern.matcher(line);
-                if (altMatcher.find()) {
-                    try {
-                        int startHour = Integer.parseInt(altMatcher.group(1));
-                        int startMin = Integer.parseInt(altMatcher.group(2));
-                        int endHour = Integer.parseInt(altMatcher.group(3));
-                        int endMin = Integer.parseInt(altMatcher.group(4));
-                        String description = altMatcher.group(5).trim();
-
-                        LocalTime startTime = LocalTime.of(startHour, startMin);
-                        LocalTime endTime = LocalTime.of(endHour, endMin);
-
-                        Event event = new Event(date, startTime, endTime, description);
-                        events.add(event);
-                        eventCount++;
-
-                        Log.d("AIFragment", "解析到事件(替代格式): " + event);
-                    } catch (Exception e) {
-                        Log.e("AIFragment", "替代格式事件解析错误: " + line, e);
-                    }
-                }
-            }
-        }
-
-        Log.d("AIFragment", "成功解析 " + events.size() + " 个事件");
-        return events;
-    }
-
-    /**
-     * 调用BlueHeart AI获取回复
-     * @return AI的回复内容
-     * @throws IOException 网络请求异常
-     * @throws NoSuchAlgorithmException 加密算法异常
-     * @throws InvalidKeyException 密钥异常
-     * @throws JSONException JSON解析异常
-     */
-    private String callBlueHeartAI() throws IOException, NoSuchAlgorithmException, InvalidKeyException, JSONException {
-        // 应用ID
-        String appId = "2025510478"; 
-        // 应用密钥
-        String appKey = "VLJsSSuMkjNDWLeV"; 
-        // AI接口的URL
-        String url = "https://api-ai.vivo.com.cn/vivogpt/completions"; 
-        // 请求ID
-        String requestId = UUID.randomUUID().toString(); 
-
-        // 构建包含对话历史的请求体
-        JSONObject requestBody = new JSONObject();
-
-        // 添加对话历史
-        JSONArray messagesArray = new JSONArray();
-        for (Map<String, String> message : messagesList) {
-            JSONObject msgObj = new JSONObject();
-            msgObj.put("role", message.get("role"));
-            msgObj.put("content", message.get("content"));
-            messagesArray.put(msgObj);
-        }
-        requestBody.put("messages", messagesArray);
-
-        // 添加其他参数
-        requestBody.put("model", "vivo-BlueLM-TB-Pro");
-        requestBody.put("sessionId", currentSessionId);
-
-        // 生成签名头
-        Map<String, String> headers = generateAuthHeaders(appId, appKey, "POST", "/vivogpt/completions",
-                "requestId=" + requestId);
-
-        // 发送请求
-        HttpURLConnection connection = (HttpURLConnection) new URL(url + "?requestId=" + requestId).openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "application/json");
-
-        // 设置请求头
-        for (Map.Entry<String, String> entry : headers.entrySet()) {
-            connection.setRequestProperty(entry.getKey(), entry.getValue());
-        }
-
-        connection.setDoOutput(true);
-        try (OutputStream os = connection.getOutputStream()) {
-            byte[] input = requestBody.toString().getBytes(StandardCharsets.UTF_8);
-            os.write(input, 0, input.length);
-        }
-
-        // 获取响应
-        int responseCode = connection.getResponseCode();
-        if (responseCode == HttpURLConnection.HTTP_OK) {
-            try (BufferedReader br = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
-                StringBuilder response = new StringBuilder();
-                String responseLine;
-                while ((responseLine = br.readLine()) != null) {
-                    response.append(responseLine.trim());
-                }
-
-                // 解析响应内容
-                JSONObject jsonResponse = new JSONObject(response.toString());
-                if (jsonResponse.getInt("code") == 0) {
-                    return jsonResponse.getJSONObject("data").getString("content");
-                } else {
-                    String errorMsg = jsonResponse.getString("msg");
-                    Log.e("AIFragment", "AI响应错误: " + errorMsg);
-                    return "AI服务错误: " + errorMsg;
-                }
-            }
-        } else {
-            // 读取错误流获取详细错误信息
-            try (BufferedReader br = new BufferedReader(
-                    new InputStreamReader(connection.getErrorStream(), StandardCharsets.UTF_8))) {
-                StringBuilder errorResponse = new StringBuilder();
-                String line;
-                while ((line = br.readLine()) != null) {
-                    errorResponse.append(line);
-                }
-                String errorMsg = "HTTP错误: " + responseCode + "\n" + errorResponse;
-                Log.e("AIFragment", errorMsg);
-                return errorMsg;
-            }
-        }
+        PlanStreamParser parser = new PlanStreamParser();
+        parser.append(aiResponse);
+        parser.finish();
+        notifyDateError(parser);
+        return parser.getEvents();
     }
 
     /**
-     * 从JSON响应中提取内容
-     * @param jsonResponse JSON响应字符串
-     * @return 提取的内容
+     * 回复中的日期无法解析时提示用户
+     * @param parser 已完成解析的解析器
      */
-    private String extractContentFromResponse(String jsonResponse) {
-        try {
-            JSONObject jsonObject = new JSONObject(jsonResponse);
-            if (jsonObject.has("data")) {
-                JSONObject data = jsonObject.getJSONObject("data");
-                if (data.has("content")) {
-                    return data.getString("content");
-                }
-            }
-        } catch (JSONException e) {
-            e.printStackTrace();
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void notifyDateError(PlanStreamParser parser) {
+        if (parser.hasDateError() && getContext() != null) {
+            Toast.makeText(getContext(), "日期解析错误，使用默认日期", Toast.LENGTH_SHORT).show();
         }
-        return null;
-    }
-
-    /**
-     * 生成认证请求头
-     * @param appId 应用ID
-     * @param appKey 应用密钥
-     * @param method 请求方法
-     * @param uri 请求的URI
-     * @param queryParams 查询参数
-     * @return 包含认证信息的请求头
-     * @throws NoSuchAlgorithmException 加密算法异常
-     * @throws InvalidKeyException 密钥异常
-     * @throws IOException 输入输出异常
-     */
-    private Map<String, String> generateAuthHeaders(String appId, String appKey, String method,
-                                                    String uri, String queryParams) throws NoSuchAlgorithmException, InvalidKeyException, IOException {
-        // 生成随机字符串
-        String nonce = generateRandomString(8); 
-        // 获取当前时间戳
-        String timestamp = String.valueOf(System.currentTimeMillis() / 1000); 
-
-        // 构造签名字符串
-        String signingString = method.toUpperCase() + "\n" +
-                uri + "\n" +
-                queryParams + "\n" +
-                appId + "\n" +
-                timestamp + "\n" +
-                "x-ai-gateway-app-id:" + appId + "\n" +
-                "x-ai-gateway-timestamp:" + timestamp + "\n" +
-                "x-ai-gateway-nonce:" + nonce;
-
-        // 计算签名
-        Mac sha256_HMAC = Mac.getInstance("HmacSHA256");
-        SecretKeySpec secret_key = new SecretKeySpec(appKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-        sha256_HMAC.init(secret_key);
-        String signature = android.util.Base64.encodeToString(sha256_HMAC.doFinal(signingString.getBytes(StandardCharsets.UTF_8)), android.util.Base64.NO_WRAP);
-
-        // 返回请求头
-        Map<String, String> headers = new HashMap<>();
-        headers.put("X-AI-GATEWAY-APP-ID", appId);
-        headers.put("X-AI-GATEWAY-TIMESTAMP", timestamp);
-        headers.put("X-AI-GATEWAY-NONCE", nonce);
-        headers.put("X-AI-GATEWAY-SIGNED-HEADERS", "x-ai-gateway-app-id;x-ai-gateway-timestamp;x-ai-gateway-nonce");
-        headers.put("X-AI-GATEWAY-SIGNATURE", signature);
-
-        return headers;
     }
 
     /**
-     * 生成指定长度的随机字符串
-     * @param length 字符串长度
-     * @return 随机字符串
+     * 调用BlueHeart AI获取回复
+     * @param listener 流式接收的文本回调
+     * @return AI的回复内容
+     * @throws IOException 网络请求异常或网关返回的错误，不会作为回复加入对话历史
      */
-    private String generateRandomString(int length) {
-        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
-        StringBuilder sb = new StringBuilder();
-        Random random = new Random();
-        for (int i = 0; i < length; i++) {
-            sb.append(chars.charAt(random.nextInt(chars.length())));
-        }
-        return sb.toString();
+    private String callBlueHeartAI(BlueLmClient.StreamListener listener) throws IOException {
+        return aiClient.completeStreaming(new ArrayList<>(messagesList), currentSessionId, CHAT_CACHE_TTL_MS, listener);
     }
 
     /**
@@ -741,26 +464,19 @@ public class AIFragment extends Fragment {
             return;
         }
 
-        int addedCount = 0;
-
+        List<Event> validEvents = new ArrayList<>();
         for (Event event : events) {
-            try {
-                // 确保日期是有效的
-                if (event.getDate() == null) {
-                    Log.e("AIFragment", "事件日期为空: " + event);
-                    continue;
-                }
-
-                // 保存事件
-                saveEventToStorage(event);
-                addedCount++;
-
-                Log.d("AIFragment", "事件已添加到日历: " + event);
-            } catch (Exception e) {
-                Log.e("AIFragment", "添加事件失败: " + event, e);
+            // 确保日期是有效的
+            if (event.getDate() == null) {
+                Log.e("AIFragment", "事件日期为空: " + event);
+                continue;
             }
+            validEvents.add(event);
         }
 
+        // 整批保存事件
+        int addedCount = saveEventsToStorage(validEvents, new ArrayList<>());
+
         if (addedCount > 0) {
             Toast.makeText(getContext(), "已添加 " + addedCount + " 个事件到日历", Toast.LENGTH_SHORT).show();
 
@@ -774,43 +490,27 @@ public class AIFragment extends Fragment {
     }
 
     /**
-     * 将事件保存到SharedPreferences中
-     * @param event 要保存的事件
+     * 将一组事件作为一个批次保存到事件仓库中，进程被杀时这批事件不会只保存一部分
+     * @param events      要保存的事件
+     * @param conflicting 收集实际添加的事件中与已有日程时间冲突的事件
+     * @return 实际添加的事件数，无效或已存在的事件不计入，保存失败时返回 0
      */
-    private void saveEventToStorage(Event event) {
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private int saveEventsToStorage(List<Event> events, List<Event> conflicting) {
+        if (events.isEmpty() || getActivity() == null) return 0;
         try {
-            if (getActivity() == null) return;
-
-            // 获取SharedPreferences实例
-            SharedPreferences prefs = getActivity().getSharedPreferences("events_prefs", Context.MODE_PRIVATE);
-            // 以日期作为键
-            String dateKey = event.getDate().toString(); 
-
-            // 使用自定义的Gson实例
-            Gson gson = GsonUtils.getGson();
-            Type type = new TypeToken<ArrayList<Event>>(){}.getType();
-
-            // 获取现有事件
-            String eventJson = prefs.getString(dateKey, "[]");
-            List<Event> events = gson.fromJson(eventJson, type);
-            if (events == null) events = new ArrayList<>();
-
-            // 添加新事件
-            events.add(event);
-
-            // 保存回SharedPreferences
-            String updatedJson = gson.toJson(events);
-            prefs.edit().putString(dateKey, updatedJson).apply();
-
-            Log.d("AIFragment", "事件已保存到存储: " + event);
+            int addedCount = EventRepository.getInstance(getActivity()).addEvents(events, conflicting);
+            Log.d("AIFragment", "已保存 " + addedCount + " 个事件，其中 " + conflicting.size() + " 个有时间冲突");
 
             // 通知刷新UI
-            if (getActivity() instanceof MainActivity) {
+            if (addedCount > 0 && getActivity() instanceof MainActivity) {
                 ((MainActivity) getActivity()).notifyEventAdded();
             }
+            return addedCount;
         } catch (Exception e) {
-            Log.e("AIFragment", "保存事件到存储失败: " + event, e);
+            Log.e("AIFragment", "保存事件到存储失败", e);
             Toast.makeText(getContext(), "保存事件失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            return 0;
         }
     }
 
@@ -818,7 +518,7 @@ public class AIFragment extends Fragment {
      * 修剪消息历史，防止消息列表过长
      */
     private void trimMessagesHistory() {
-        Gson gson = new Gson();
+        Gson gson = GsonUtils.getGson();
         int maxLength = 6000; // 保留安全边界
 
         while (gson.toJson(messagesList).length() > maxLength && messagesList.size() > 2) {
@@ -0,0 +1,248 @@
+/**
+ * AiResponseCache 类是 AI 回复的磁盘缓存，按请求内容寻址。
+ * 键是 (模型, 全部消息) 的 SHA-256 摘要，系统提示作为第一条消息包含在内，会话ID不参与计算，
+ * 因此同样的问题在任何会话中都会命中同一条缓存。
+ * 每条缓存单独存为一个文件，带有过期时间；所有文件的总大小超过预算时按最近最少使用的顺序淘汰。
+ * 过期的缓存不会立即删除，网关不可用时仍可以通过 getStale 取出作为降级结果。
+ * 文件的修改时间记录最近一次使用，重启后据此恢复使用顺序。
+ */
+public class AiResponseCache {
+    private static final String TAG = "AiResponseCache";
+
+    // 缓存目录名，位于应用的缓存目录下
+    static final String DIRECTORY_NAME = "ai_responses";
+    // 默认的磁盘预算
+    private static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+    // 缓存文件头魔数
+    private static final int MAGIC = 0x41494352; // "AICR"
+    // 写入中的临时文件后缀
+    private static final String TMP_SUFFIX = ".tmp";
+
+    // 单例实例
+    private static AiResponseCache instance;
+
+    // 缓存目录
+    private final File directory;
+    // 磁盘预算（字节）
+    private final long maxBytes;
+    // 键到文件大小的映射，按访问顺序排列，最久未使用的在最前
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // 所有缓存文件的总大小
+    private long totalBytes;
+    // 是否已经扫描过缓存目录
+    private boolean loaded;
+
+    /**
+     * 获取使用应用缓存目录和默认预算的单例。
+     *
+     * @param context 上下文
+     * @return AiResponseCache 单例
+     */
+    public static synchronized AiResponseCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new AiResponseCache(new File(context.getApplicationContext().getCacheDir(), DIRECTORY_NAME),
+                    DEFAULT_MAX_BYTES);
+        }
+        return instance;
+    }
+
+    /**
+     * 构造函数。
+     *
+     * @param directory 缓存目录
+     * @param maxBytes  磁盘预算（字节）
+     */
+    public AiResponseCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 计算请求的缓存键。
+     *
+     * @param model    模型名称
+     * @param messages 对话消息，每条包含 role 和 content
+     * @return 64 位十六进制的 SHA-256 摘要
+     */
+    public static String keyOf(String model, List<Map<String, String>> messages) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        // 每个字段前写入长度，避免不同的拆分方式拼出相同的字节序列
+        update(digest, model);
+        for (Map<String, String> message : messages) {
+            update(digest, message.get("role"));
+            update(digest, message.get("content"));
+        }
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = Character.forDigit((hash[i] >> 4) & 0xF, 16);
+            hex[i * 2 + 1] = Character.forDigit(hash[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        int length = value == null ? -1 : bytes.length;
+        digest.update(new byte[]{(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+        digest.update(bytes);
+    }
+
+    /**
+     * 核心函数：查找未过期的缓存回复。
+     *
+     * @param key 缓存键
+     * @return 缓存的回复，不存在或已过期时返回 null
+     */
+    public synchronized String get(String key) {
+        return read(key, false);
+    }
+
+    /**
+     * 查找缓存回复，已过期的也返回，用于网关不可用时降级。
+     *
+     * @param key 缓存键
+     * @return 缓存的回复，不存在时返回 null
+     */
+    public synchronized String getStale(String key) {
+        return read(key, true);
+    }
+
+    private String read(String key, boolean allowExpired) {
+        ensureLoaded();
+        if (!entries.containsKey(key)) {
+            return null;
+        }
+        File file = fileOf(key);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("缓存文件格式错误");
+            }
+            long expiresAt = in.readLong();
+            if (!allowExpired && System.currentTimeMillis() >= expiresAt) {
+                return null;
+            }
+            byte[] value = new byte[in.readInt()];
+            in.readFully(value);
+            // 记录这次使用，重启后仍能按使用顺序淘汰
+            entries.get(key);
+            file.setLastModified(System.currentTimeMillis());
+            return new String(value, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Log.e(TAG, "读取缓存失败: " + key, e);
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * 核心函数：写入一条回复，超出磁盘预算时淘汰最久未使用的缓存。
+     *
+     * @param key       缓存键
+     * @param value     回复
+     * @param ttlMillis 有效期（毫秒）
+     */
+    public synchronized void put(String key, String value, long ttlMillis) {
+        ensureLoaded();
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long size = 16L + bytes.length;
+        if (size > maxBytes) {
+            return;
+        }
+
+        // 先写临时文件再重命名，写入中途失败不会留下半条缓存
+        File target = fileOf(key);
+        File tmp = new File(directory, key + TMP_SUFFIX);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(System.currentTimeMillis() + ttlMillis);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } catch (IOException e) {
+            Log.e(TAG, "写入缓存失败: " + key, e);
+            tmp.delete();
+            return;
+        }
+        Long previous = entries.remove(key);
+        if (previous != null) {
+            totalBytes -= previous;
+        }
+        if (!tmp.renameTo(target)) {
+            Log.e(TAG, "无法替换缓存文件: " + target);
+            tmp.delete();
+            target.delete();
+            return;
+        }
+        entries.put(key, size);
+        totalBytes += size;
+        trimToSize();
+    }
+
+    /**
+     * 删除全部缓存。
+     */
+    public synchronized void clear() {
+        ensureLoaded();
+        for (String key : new ArrayList<>(entries.keySet())) {
+            remove(key);
+        }
+    }
+
+    /**
+     * 按最近最少使用的顺序淘汰，直到总大小不超过预算。
+     */
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            fileOf(eldest.getKey()).delete();
+            totalBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    private void remove(String key) {
+        Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        fileOf(key).delete();
+    }
+
+    /**
+     * 首次使用时扫描缓存目录，按修改时间恢复使用顺序，并清理上次遗留的临时文件。
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "无法创建缓存目录: " + directory);
+            return;
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (file.getName().endsWith(TMP_SUFFIX)) {
+                file.delete();
+                continue;
+            }
+            entries.put(file.getName(), file.length());
+            totalBytes += file.length();
+        }
+        trimToSize();
+    }
+
+    private File fileOf(String key) {
+        return new File(directory, key);
+    }
+}
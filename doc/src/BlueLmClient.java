@@ -0,0 +1,790 @@
+/**
+ * BlueLmClient 类是蓝心大模型网关的客户端，AI 对话和今日建议共用同一个实例。
+ * 底层使用 HttpURLConnection：请求体按固定长度发送，响应体完整读完并关闭输入流，
+ * 连接因此会回到系统的 keep-alive 连接池中被后续请求复用；连接和读取都有超时。
+ * 签名用的 Mac 按线程缓存，只在第一次使用时初始化密钥。
+ * 对话可以用流式接口逐段接收回复，网关不支持时退回到普通接口。
+ * 调用方给出有效期时，成功的回复写入 AiResponseCache，相同的请求在有效期内直接从磁盘返回。
+ * 每次调用按 GatewayPolicy 执行：总期限内只对连接失败、超时和可重试的 HTTP 状态码做指数退避重试，
+ * 调用方要求时非流式请求可在超过 p95 延迟后发出对冲请求，连续失败时熔断器快速失败；
+ * 调用最终失败时优先返回过期的缓存回复。
+ * 调用方可以传入 CancellationSignal，取消时断开本次调用打开的所有连接，阻塞在网络上的线程立即返回。
+ * 网关地址可以在构造时指定，便于连接本地的模拟网关进行测试。
+ */
+public class BlueLmClient {
+    private static final String TAG = "BlueLmClient";
+
+    // 默认网关地址
+    private static final String DEFAULT_BASE_URL = "https://api-ai.vivo.com.cn";
+    // 对话接口路径
+    private static final String COMPLETIONS_PATH = "/vivogpt/completions";
+    // 流式对话接口路径
+    private static final String STREAM_PATH = "/vivogpt/completions/stream";
+    // 使用的模型
+    private static final String MODEL = "vivo-BlueLM-TB-Pro";
+    // 应用ID
+    private static final String APP_ID = "2025510478";
+    // 应用密钥
+    private static final String APP_KEY = "VLJsSSuMkjNDWLeV";
+    // 默认连接超时
+    private static final int DEFAULT_CONNECT_TIMEOUT_MS = 10_000;
+    // 默认读取超时，生成较长的日程可能需要较长时间
+    private static final int DEFAULT_READ_TIMEOUT_MS = 60_000;
+    // 签名算法
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    // 计算 p95 延迟所需的最少样本数
+    private static final int MIN_HEDGE_SAMPLES = 20;
+    // 随机字符串的字符集
+    private static final String NONCE_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    // 单例实例
+    private static BlueLmClient instance;
+
+    // 网关地址
+    private final String baseUrl;
+    private final String appId;
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+    // 签名密钥
+    private final SecretKeySpec signingKey;
+    // 每个线程缓存一个已初始化的 Mac，Mac 本身不是线程安全的
+    private final ThreadLocal<Mac> macs;
+    // 网关没有流式接口时置为 true，之后直接使用普通接口
+    private volatile boolean streamingUnsupported;
+    // 回复缓存，为 null 时不缓存
+    private final AiResponseCache cache;
+    // 容错策略
+    private final GatewayPolicy policy;
+    // 熔断器
+    private final CircuitBreaker breaker;
+    // 最近成功请求的延迟，用于计算对冲延迟
+    private final LatencyWindow latencies = new LatencyWindow();
+    // 执行对冲请求的线程池
+    private final ExecutorService hedgeExecutor = Executors.newCachedThreadPool();
+
+    /**
+     * 网关返回错误时抛出的异常，消息可以直接展示给用户。
+     */
+    public static class GatewayException extends IOException {
+        // HTTP 状态码，网关业务错误时为 200
+        private final int httpCode;
+
+        GatewayException(int httpCode, String message) {
+            super(message);
+            this.httpCode = httpCode;
+        }
+
+        public int getHttpCode() {
+            return httpCode;
+        }
+    }
+
+    /**
+     * 熔断器打开时抛出的异常，请求没有发出。
+     */
+    public static class CircuitOpenException extends GatewayException {
+        CircuitOpenException() {
+            super(HttpURLConnection.HTTP_UNAVAILABLE, "AI服务暂时不可用，请稍后再试");
+        }
+    }
+
+    /**
+     * 一次网关请求。
+     */
+    private interface Attempt {
+        /**
+         * 发出请求。
+         *
+         * @param timeoutMs 本次请求可用的时间（毫秒）
+         * @return 回复内容
+         */
+        String call(int timeoutMs) throws IOException;
+
+        /**
+         * 失败后是否还可以重试，流式请求送出文本后不能重试。
+         */
+        boolean canRetry();
+    }
+
+    /**
+     * 一次调用中打开的连接。调用被取消时断开其中所有的连接，包括对冲请求的连接，
+     * 阻塞在连接或读取上的线程随即以 IOException 返回；取消之后打开的连接立即断开。
+     */
+    private static class OpenConnections implements CancellationSignal.OnCancelListener {
+        private final CancellationSignal signal;
+        private final Set<HttpURLConnection> connections = ConcurrentHashMap.newKeySet();
+
+        OpenConnections(CancellationSignal signal) {
+            this.signal = signal;
+        }
+
+        void add(HttpURLConnection connection) throws InterruptedIOException {
+            connections.add(connection);
+            // 先登记再检查，取消回调没有看到这个连接时这里一定能看到取消标记
+            if (signal.isCanceled()) {
+                connection.disconnect();
+                throw new InterruptedIOException("请求已取消");
+            }
+        }
+
+        void remove(HttpURLConnection connection) {
+            connections.remove(connection);
+        }
+
+        boolean isCanceled() {
+            return signal.isCanceled();
+        }
+
+        @Override
+        public void onCancel() {
+            for (HttpURLConnection connection : connections) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * 最近成功请求的延迟样本，环形保存最近 64 个。
+     */
+    private static class LatencyWindow {
+        private final long[] samples = new long[64];
+        private int count;
+        private int next;
+
+        synchronized void record(long latencyMs) {
+            samples[next] = latencyMs;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        /**
+         * 样本的 p95 延迟，样本不足 MIN_HEDGE_SAMPLES 个时返回 -1。
+         */
+        synchronized long p95() {
+            if (count < MIN_HEDGE_SAMPLES) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(count * 0.95) - 1];
+        }
+    }
+
+    /**
+     * 获取使用默认网关地址、超时和回复缓存的单例。
+     *
+     * @param context 上下文
+     * @return BlueLmClient 单例
+     */
+    public static synchronized BlueLmClient getInstance(Context context) {
+        if (instance == null) {
+            instance = new BlueLmClient(DEFAULT_BASE_URL, APP_ID, APP_KEY, DEFAULT_CONNECT_TIMEOUT_MS,
+                    DEFAULT_READ_TIMEOUT_MS, AiResponseCache.getInstance(context), GatewayPolicy.defaults());
+        }
+        return instance;
+    }
+
+    /**
+     * 构造函数。
+     *
+     * @param baseUrl          网关地址，例如 https://api-ai.vivo.com.cn 或本地模拟网关的 http://127.0.0.1:8080
+     * @param appId            应用ID
+     * @param appKey           应用密钥
+     * @param connectTimeoutMs 连接超时（毫秒）
+     * @param readTimeoutMs    读取超时（毫秒）
+     * @param cache            回复缓存，为 null 时不缓存
+     * @param policy           容错策略
+     */
+    public BlueLmClient(String baseUrl, String appId, String appKey, int connectTimeoutMs, int readTimeoutMs,
+                        AiResponseCache cache, GatewayPolicy policy) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.appId = appId;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+        this.cache = cache;
+        this.policy = policy;
+        this.breaker = new CircuitBreaker(policy.failureThreshold, policy.openDurationMs);
+        this.signingKey = new SecretKeySpec(appKey.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(signingKey);
+                return mac;
+            } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+                throw new IllegalStateException("无法初始化签名算法", e);
+            }
+        });
+    }
+
+    /**
+     * 流式回复的回调，在发起请求的线程上调用。
+     */
+    public interface StreamListener {
+        /**
+         * 收到一段新生成的文本。
+         *
+         * @param delta 新增的文本
+         */
+        void onDelta(String delta);
+    }
+
+    /**
+     * 核心函数：发送一次对话请求，返回模型的回复。
+     *
+     * @param messages   对话消息，每条包含 role 和 content
+     * @param sessionId  会话ID
+     * @param cacheTtlMs 回复缓存的有效期（毫秒），为 0 时不读写缓存
+     * @return 模型回复的内容
+     * @throws GatewayException 网关返回 HTTP 错误或业务错误
+     * @throws IOException      网络错误或超时
+     */
+    public String complete(List<Map<String, String>> messages, String sessionId, long cacheTtlMs) throws IOException {
+        return complete(messages, sessionId, cacheTtlMs, policy.hedging, null);
+    }
+
+    /**
+     * 发送一次可取消的对话请求，由调用方决定是否对冲。对冲会让慢请求多消耗一次网关调用，
+     * 只适合结果可以共享、对延迟敏感的请求，例如今日建议。
+     *
+     * @param messages   对话消息，每条包含 role 和 content
+     * @param sessionId  会话ID
+     * @param cacheTtlMs 回复缓存的有效期（毫秒），为 0 时不读写缓存
+     * @param hedge      是否在请求超过 p95 延迟仍未返回时发出对冲请求
+     * @param signal     取消信号，取消时断开连接并停止重试，为 null 时不可取消
+     * @return 模型回复的内容
+     * @throws GatewayException 网关返回 HTTP 错误或业务错误
+     * @throws IOException      网络错误、超时或请求被取消
+     */
+    public String complete(List<Map<String, String>> messages, String sessionId, long cacheTtlMs,
+                           boolean hedge, CancellationSignal signal) throws IOException {
+        String cacheKey = cacheKeyOf(messages, cacheTtlMs);
+        String cached = cacheKey == null ? null : cache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        OpenConnections open = signal == null ? null : new OpenConnections(signal);
+        if (open != null) {
+            signal.setOnCancelListener(open);
+        }
+        String content;
+        try {
+            content = callWithPolicy(new Attempt() {
+                @Override
+                public String call(int timeoutMs) throws IOException {
+                    return request(messages, sessionId, timeoutMs, open);
+                }
+
+                @Override
+                public boolean canRetry() {
+                    return open == null || !open.isCanceled();
+                }
+            }, hedge);
+        } catch (IOException e) {
+            if (open != null && open.isCanceled()) {
+                throw e;
+            }
+            // 只在网关不可用时降级，业务错误照常抛出
+            String stale = cacheKey == null || !isRetryable(e) ? null : cache.getStale(cacheKey);
+            if (stale == null) {
+                throw e;
+            }
+            Log.w(TAG, "网关不可用，使用过期的缓存回复", e);
+            return stale;
+        } finally {
+            if (open != null) {
+                signal.setOnCancelListener(null);
+            }
+        }
+        if (cacheKey != null) {
+            cache.put(cacheKey, content, cacheTtlMs);
+        }
+        return content;
+    }
+
+    /**
+     * 核心函数：以流式方式发送对话请求，每收到一段文本就回调一次，返回完整的回复。
+     * 命中缓存时整段回复作为一次回调送出。收到第一段文本之前的失败会按策略重试，之后的失败直接抛出；
+     * 流式请求不做对冲，总期限只约束收到第一段文本之前的时间。
+     *
+     * @param messages   对话消息，每条包含 role 和 content
+     * @param sessionId  会话ID
+     * @param cacheTtlMs 回复缓存的有效期（毫秒），为 0 时不读写缓存
+     * @param listener   文本回调
+     * @return 模型回复的完整内容
+     * @throws GatewayException 网关返回 HTTP 错误或业务错误
+     * @throws IOException      网络错误或超时
+     */
+    public String completeStreaming(List<Map<String, String>> messages, String sessionId, long cacheTtlMs,
+                                    StreamListener listener) throws IOException {
+        String cacheKey = cacheKeyOf(messages, cacheTtlMs);
+        String cached = cacheKey == null ? null : cache.get(cacheKey);
+        if (cached != null) {
+            listener.onDelta(cached);
+            return cached;
+        }
+        // 记录是否已经送出过文本，送出之后不能再重试或改用缓存
+        boolean[] delivered = new boolean[1];
+        StreamListener tracking = delta -> {
+            delivered[0] = true;
+            listener.onDelta(delta);
+        };
+        String content;
+        try {
+            content = callWithPolicy(new Attempt() {
+                @Override
+                public String call(int timeoutMs) throws IOException {
+                    return requestStreaming(messages, sessionId, timeoutMs, tracking);
+                }
+
+                @Override
+                public boolean canRetry() {
+                    return !delivered[0];
+                }
+            }, false);
+        } catch (IOException e) {
+            String stale = cacheKey == null || delivered[0] || !isRetryable(e) ? null : cache.getStale(cacheKey);
+            if (stale == null) {
+                throw e;
+            }
+            Log.w(TAG, "网关不可用，使用过期的缓存回复", e);
+            listener.onDelta(stale);
+            return stale;
+        }
+        if (cacheKey != null) {
+            cache.put(cacheKey, content, cacheTtlMs);
+        }
+        return content;
+    }
+
+    /**
+     * 核心函数：按容错策略执行请求。熔断器打开时直接失败；可重试的错误在总期限内按指数退避重试；
+     * 启用对冲时由 callHedged 发出请求。
+     *
+     * @param attempt 请求
+     * @param hedge   是否允许对冲
+     * @return 回复内容
+     */
+    private String callWithPolicy(Attempt attempt, boolean hedge) throws IOException {
+        long deadline = SystemClock.elapsedRealtime() + policy.deadlineMs;
+        for (int attemptNo = 1; ; attemptNo++) {
+            long remaining = deadline - SystemClock.elapsedRealtime();
+            if (remaining <= 0) {
+                throw new SocketTimeoutException("AI服务请求超时");
+            }
+            if (!breaker.allowRequest()) {
+                throw new CircuitOpenException();
+            }
+            try {
+                long start = SystemClock.elapsedRealtime();
+                String content = hedge ? callHedged(attempt, remaining) : attempt.call(timeoutOf(remaining));
+                latencies.record(SystemClock.elapsedRealtime() - start);
+                breaker.onSuccess();
+                return content;
+            } catch (IOException e) {
+                boolean retryable = isRetryable(e);
+                // 只有网络错误和网关侧的临时故障计入熔断，网关返回的业务错误说明网关本身可用；
+                // 取消、中断或无法解析的回复不能说明网关的状态，熔断器保持不变
+                if (retryable) {
+                    breaker.onFailure();
+                } else if (e instanceof GatewayException) {
+                    breaker.onSuccess();
+                } else {
+                    breaker.onAbandoned();
+                }
+                if (!retryable || !attempt.canRetry() || attemptNo >= policy.maxAttempts) {
+                    throw e;
+                }
+                long backoff = policy.backoffMs(attemptNo);
+                if (SystemClock.elapsedRealtime() + backoff >= deadline) {
+                    throw e;
+                }
+                Log.w(TAG, "第 " + attemptNo + " 次请求失败，" + backoff + " 毫秒后重试: " + e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("请求被中断");
+                }
+            } catch (RuntimeException e) {
+                breaker.onFailure();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 发出请求，超过最近的 p95 延迟仍未返回时再发出一个相同的请求，采用先成功的结果。
+     * 延迟样本不足时不对冲。落后的请求被取消，它的结果会被丢弃。
+     *
+     * @param attempt   请求
+     * @param remaining 剩余期限（毫秒）
+     * @return 回复内容
+     */
+    private String callHedged(Attempt attempt, long remaining) throws IOException {
+        long p95 = latencies.p95();
+        long delay = Math.max(policy.minHedgeDelayMs, p95);
+        if (p95 < 0 || delay >= remaining) {
+            return attempt.call(timeoutOf(remaining));
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        CompletableFuture<String> winner = new CompletableFuture<>();
+        // 尚未结束的请求数，全部失败时把最后一个错误交给等待者
+        AtomicInteger pending = new AtomicInteger(1);
+        Future<?> primary = submitAttempt(attempt, remaining, winner, pending);
+        Future<?> backup = null;
+        try {
+            try {
+                return winner.get(delay, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                long left = remaining - (SystemClock.elapsedRealtime() - start);
+                Log.d(TAG, "请求超过 p95 延迟 " + delay + " 毫秒，发出对冲请求");
+                pending.incrementAndGet();
+                backup = submitAttempt(attempt, left, winner, pending);
+                return winner.get(left, TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException e) {
+            throw new SocketTimeoutException("AI服务请求超时");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("请求被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            primary.cancel(true);
+            if (backup != null) {
+                backup.cancel(true);
+            }
+        }
+    }
+
+    private Future<?> submitAttempt(Attempt attempt, long timeoutMs, CompletableFuture<String> winner,
+                                    AtomicInteger pending) {
+        return hedgeExecutor.submit(() -> {
+            try {
+                winner.complete(attempt.call(timeoutOf(timeoutMs)));
+            } catch (Throwable e) {
+                if (pending.decrementAndGet() == 0) {
+                    winner.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 判断失败是否值得重试：连接失败、超时和可重试的 HTTP 状态码。
+     * 响应无法解析、连接中途断开等其他错误重试也不会得到不同的结果，或者可能让网关重复执行请求，直接抛出。
+     */
+    private static boolean isRetryable(IOException e) {
+        if (e instanceof GatewayException) {
+            return GatewayPolicy.isRetryable(((GatewayException) e).getHttpCode());
+        }
+        // 线程被中断时的 InterruptedIOException 不是 SocketTimeoutException，不会重试
+        return e instanceof SocketTimeoutException
+                || e instanceof ConnectException
+                || e instanceof NoRouteToHostException
+                || e instanceof UnknownHostException;
+    }
+
+    /**
+     * 把剩余期限换算为单次连接可用的超时。
+     */
+    private static int timeoutOf(long remainingMs) {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, remainingMs));
+    }
+
+    /**
+     * 计算缓存键，不使用缓存时返回 null。
+     */
+    private String cacheKeyOf(List<Map<String, String>> messages, long cacheTtlMs) {
+        if (cache == null || cacheTtlMs <= 0) {
+            return null;
+        }
+        return AiResponseCache.keyOf(MODEL, messages);
+    }
+
+    /**
+     * 通过普通接口发送请求。
+     *
+     * @param open 本次调用打开的连接，取消时据此断开，为 null 时不可取消
+     */
+    private String request(List<Map<String, String>> messages, String sessionId, int timeoutMs,
+                           OpenConnections open) throws IOException {
+        HttpURLConnection connection = post(COMPLETIONS_PATH, messages, sessionId, "application/json", timeoutMs, open);
+        try {
+            int responseCode = connection.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw httpError(connection, responseCode);
+            }
+            return parseCompletion(readBody(connection.getInputStream(), connection.getContentLength()));
+        } finally {
+            if (open != null) {
+                open.remove(connection);
+            }
+        }
+    }
+
+    /**
+     * 通过流式接口发送请求。网关不支持流式接口时（接口不存在或返回普通 JSON），退回到普通接口，
+     * 整段回复作为一次回调送出；接口不存在的结果会被记住，之后的请求直接使用普通接口。
+     */
+    private String requestStreaming(List<Map<String, String>> messages, String sessionId, int timeoutMs,
+                                    StreamListener listener) throws IOException {
+        if (!streamingUnsupported) {
+            HttpURLConnection connection = post(STREAM_PATH, messages, sessionId, "text/event-stream", timeoutMs, null);
+            int responseCode = connection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                String contentType = connection.getContentType();
+                if (contentType != null && contentType.startsWith("text/event-stream")) {
+                    return readEventStream(connection.getInputStream(), listener);
+                }
+                // 网关忽略了流式请求，直接返回了完整回复
+                String content = parseCompletion(readBody(connection.getInputStream(), connection.getContentLength()));
+                listener.onDelta(content);
+                return content;
+            }
+            if (responseCode != HttpURLConnection.HTTP_NOT_FOUND
+                    && responseCode != HttpURLConnection.HTTP_BAD_METHOD
+                    && responseCode != HttpURLConnection.HTTP_NOT_IMPLEMENTED) {
+                throw httpError(connection, responseCode);
+            }
+            readBody(connection.getErrorStream(), connection.getContentLength());
+            Log.w(TAG, "网关不支持流式接口，改用普通请求: " + responseCode);
+            streamingUnsupported = true;
+        }
+
+        String content = request(messages, sessionId, timeoutMs, null);
+        listener.onDelta(content);
+        return content;
+    }
+
+    /**
+     * 建立连接并发送请求体，连接和读取超时都不超过本次请求可用的时间。
+     * 连接在发起网络操作之前登记到 open 中，取消时可以断开。
+     */
+    private HttpURLConnection post(String path, List<Map<String, String>> messages, String sessionId,
+                                   String accept, int timeoutMs, OpenConnections open) throws IOException {
+        String requestId = UUID.randomUUID().toString();
+        byte[] body = buildRequestBody(messages, sessionId).getBytes(StandardCharsets.UTF_8);
+
+        HttpURLConnection connection = (HttpURLConnection)
+                new URL(baseUrl + path + "?requestId=" + requestId).openConnection();
+        if (open != null) {
+            open.add(connection);
+        }
+        connection.setConnectTimeout(Math.min(connectTimeoutMs, timeoutMs));
+        connection.setReadTimeout(Math.min(readTimeoutMs, timeoutMs));
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        // 固定长度发送，不需要先在连接内部缓冲整个请求体
+        connection.setFixedLengthStreamingMode(body.length);
+        connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+        connection.setRequestProperty("Accept", accept);
+        for (Map.Entry<String, String> entry : signHeaders("POST", path, "requestId=" + requestId).entrySet()) {
+            connection.setRequestProperty(entry.getKey(), entry.getValue());
+        }
+
+        try (OutputStream os = connection.getOutputStream()) {
+            os.write(body);
+        } catch (IOException e) {
+            if (open != null) {
+                open.remove(connection);
+            }
+            throw e;
+        }
+        return connection;
+    }
+
+    /**
+     * 读取错误响应并转换为异常。
+     */
+    private static GatewayException httpError(HttpURLConnection connection, int responseCode) throws IOException {
+        String errorBody = readBody(connection.getErrorStream(), connection.getContentLength());
+        Log.e(TAG, "HTTP错误: " + responseCode + "\n" + errorBody);
+        return new GatewayException(responseCode, "AI服务请求失败（HTTP " + responseCode + "），请稍后再试");
+    }
+
+    /**
+     * 从普通接口的响应中取出回复内容。
+     */
+    private static String parseCompletion(String response) throws IOException {
+        try {
+            JSONObject jsonResponse = new JSONObject(response);
+            if (jsonResponse.getInt("code") == 0) {
+                return jsonResponse.getJSONObject("data").getString("content");
+            }
+            String errorMsg = jsonResponse.optString("msg");
+            Log.e(TAG, "AI响应错误: " + errorMsg);
+            throw new GatewayException(HttpURLConnection.HTTP_OK, "AI服务错误: " + errorMsg);
+        } catch (JSONException e) {
+            throw new IOException("无法解析AI响应", e);
+        }
+    }
+
+    /**
+     * 逐个读取服务器推送事件（SSE）。每个事件由 event 行和若干 data 行组成，以空行结束；
+     * data 中的 message 字段是新生成的文本，close 事件或 [DONE] 表示回复结束。
+     * 读到末尾并关闭输入流后，连接回到连接池中。
+     *
+     * @return 完整的回复
+     */
+    private static String readEventStream(InputStream in, StreamListener listener) throws IOException {
+        StringBuilder content = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String eventName = "";
+            StringBuilder data = new StringBuilder();
+            String line;
+            boolean done = false;
+            while ((line = reader.readLine()) != null) {
+                if (done) {
+                    // 继续读到末尾，连接才能被复用
+                    continue;
+                }
+                if (line.isEmpty()) {
+                    done = dispatchEvent(eventName, data.toString(), content, listener);
+                    eventName = "";
+                    data.setLength(0);
+                } else if (line.startsWith("event:")) {
+                    eventName = line.substring(6).trim();
+                } else if (line.startsWith("data:")) {
+                    if (data.length() > 0) {
+                        data.append('\n');
+                    }
+                    String value = line.substring(5);
+                    data.append(value.startsWith(" ") ? value.substring(1) : value);
+                }
+                // 注释行（以冒号开头）和其他字段忽略
+            }
+            if (!done && data.length() > 0) {
+                dispatchEvent(eventName, data.toString(), content, listener);
+            }
+        }
+        return content.toString();
+    }
+
+    /**
+     * 处理一个服务器推送事件。
+     *
+     * @return 回复已经结束时返回 true
+     */
+    private static boolean dispatchEvent(String eventName, String data, StringBuilder content,
+                                         StreamListener listener) throws IOException {
+        if ("close".equals(eventName) || "[DONE]".equals(data)) {
+            return true;
+        }
+        if (data.isEmpty()) {
+            return false;
+        }
+        try {
+            JSONObject json = new JSONObject(data);
+            if ("error".equals(eventName) || json.optInt("code", 0) != 0) {
+                String errorMsg = json.optString("msg", json.optString("message"));
+                Log.e(TAG, "AI响应错误: " + errorMsg);
+                throw new GatewayException(HttpURLConnection.HTTP_OK, "AI服务错误: " + errorMsg);
+            }
+            String delta = json.optString("message");
+            if (!delta.isEmpty()) {
+                content.append(delta);
+                listener.onDelta(delta);
+            }
+            return false;
+        } catch (JSONException e) {
+            throw new IOException("无法解析AI响应: " + data, e);
+        }
+    }
+
+    /**
+     * 构建请求体 JSON。
+     */
+    private static String buildRequestBody(List<Map<String, String>> messages, String sessionId) throws IOException {
+        try {
+            JSONArray messagesArray = new JSONArray();
+            for (Map<String, String> message : messages) {
+                JSONObject msgObj = new JSONObject();
+                msgObj.put("role", message.get("role"));
+                msgObj.put("content", message.get("content"));
+                messagesArray.put(msgObj);
+            }
+            JSONObject requestBody = new JSONObject();
+            requestBody.put("messages", messagesArray);
+            requestBody.put("model", MODEL);
+            requestBody.put("sessionId", sessionId);
+            return requestBody.toString();
+        } catch (JSONException e) {
+            throw new IOException("无法构建请求", e);
+        }
+    }
+
+    /**
+     * 生成网关要求的签名请求头。
+     *
+     * @param method      请求方法
+     * @param uri         请求路径
+     * @param queryParams 查询参数
+     * @return 请求头
+     */
+    Map<String, String> signHeaders(String method, String uri, String queryParams) {
+        String nonce = randomNonce(8);
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+
+        String signingString = method.toUpperCase(Locale.ROOT) + "\n" +
+                uri + "\n" +
+                queryParams + "\n" +
+                appId + "\n" +
+                timestamp + "\n" +
+                "x-ai-gateway-app-id:" + appId + "\n" +
+                "x-ai-gateway-timestamp:" + timestamp + "\n" +
+                "x-ai-gateway-nonce:" + nonce;
+
+        // doFinal 之后 Mac 自动重置，可以直接用于下一次签名
+        byte[] digest = macs.get().doFinal(signingString.getBytes(StandardCharsets.UTF_8));
+        String signature = android.util.Base64.encodeToString(digest, android.util.Base64.NO_WRAP);
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-AI-GATEWAY-APP-ID", appId);
+        headers.put("X-AI-GATEWAY-TIMESTAMP", timestamp);
+        headers.put("X-AI-GATEWAY-NONCE", nonce);
+        headers.put("X-AI-GATEWAY-SIGNED-HEADERS", "x-ai-gateway-app-id;x-ai-gateway-timestamp;x-ai-gateway-nonce");
+        headers.put("X-AI-GATEWAY-SIGNATURE", signature);
+        return headers;
+    }
+
+    private static String randomNonce(int length) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = NONCE_CHARS.charAt(random.nextInt(NONCE_CHARS.length()));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 完整读取响应体并按 UTF-8 解码，保留原始的换行和空白。
+     * 读到末尾并关闭输入流后，连接才会回到连接池中。
+     *
+     * @param in            响应输入流，可以为 null
+     * @param contentLength 响应头中的长度，未知时为 -1
+     * @return 响应体文本
+     */
+    static String readBody(InputStream in, int contentLength) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(contentLength > 0 ? contentLength : 4096);
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
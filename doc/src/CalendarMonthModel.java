@@ -0,0 +1,155 @@
+/**
+ * CalendarMonthModel 类是月历网格的不可变显示模型。
+ * 网格偏移、每个单元格的事件预览文本和无障碍描述都在后台线程上一次算好，
+ * 界面线程只负责绘制；与上一个模型比较可以得到真正发生变化的单元格，只重新绑定这些单元格。
+ */
+@RequiresApi(api = Build.VERSION_CODES.O)
+public final class CalendarMonthModel {
+
+    static final int COLUMNS = 7;
+    static final int ROWS = 6;
+    static final int CELL_COUNT = COLUMNS * ROWS;
+    // 每个单元格最多预览的事件数
+    private static final int MAX_EVENTS_TO_SHOW = 1;
+    // 每个事件预览的最多字符数
+    private static final int MAX_CHARS_PER_EVENT = 3;
+
+    // 月份
+    private final YearMonth month;
+    // 当月第一天在网格中的位置（0 为周日）
+    private final int firstOffset;
+    // 当月天数
+    private final int daysInMonth;
+    // 今天所在的单元格，不在当月时为 -1
+    private final int todayCell;
+    // 每个单元格的事件预览文本，没有事件时为 null
+    private final String[] previewTexts = new String[CELL_COUNT];
+    // 每个单元格的无障碍描述，空白单元格为 null
+    private final String[] contentDescriptions = new String[CELL_COUNT];
+
+    private CalendarMonthModel(YearMonth month, LocalDate today) {
+        this.month = month;
+        int firstDayOfWeek = month.atDay(1).getDayOfWeek().getValue();
+        // 转换为网格中的偏移量 (0=周日, 1=周一, ... 6=周六)
+        this.firstOffset = firstDayOfWeek == 7 ? 0 : firstDayOfWeek;
+        this.daysInMonth = month.lengthOfMonth();
+        this.todayCell = today != null && YearMonth.from(today).equals(month)
+                ? firstOffset + today.getDayOfMonth() - 1 : -1;
+    }
+
+    /**
+     * 核心函数：根据一个月的事件构建显示模型，可以在任意线程上调用。
+     *
+     * @param month        月份
+     * @param eventsByDate 当月每天的事件
+     * @param today        今天的日期
+     * @return 显示模型
+     */
+    public static CalendarMonthModel build(YearMonth month, Map<LocalDate, List<Event>> eventsByDate, LocalDate today) {
+        CalendarMonthModel model = new CalendarMonthModel(month, today);
+        for (int day = 1; day <= model.daysInMonth; day++) {
+            LocalDate date = month.atDay(day);
+            List<Event> dayEvents = eventsByDate.get(date);
+            int cell = model.firstOffset + day - 1;
+            if (dayEvents != null && !dayEvents.isEmpty()) {
+                model.previewTexts[cell] = previewText(dayEvents);
+            }
+            model.contentDescriptions[cell] = contentDescription(date, dayEvents);
+        }
+        return model;
+    }
+
+    /**
+     * 核心函数：与上一个模型比较，找出显示内容发生变化的单元格。
+     *
+     * @param previous 上一个模型，可以为 null
+     * @return 变化的单元格序号，月份不同时为全部单元格
+     */
+    public List<Integer> changedCells(CalendarMonthModel previous) {
+        List<Integer> changed = new ArrayList<>();
+        boolean sameGrid = previous != null && previous.month.equals(month);
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            if (!sameGrid
+                    || (cell == todayCell) != (cell == previous.todayCell)
+                    || !Objects.equals(previewTexts[cell], previous.previewTexts[cell])
+                    || !Objects.equals(contentDescriptions[cell], previous.contentDescriptions[cell])) {
+                changed.add(cell);
+            }
+        }
+        return changed;
+    }
+
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    public int getTodayCell() {
+        return todayCell;
+    }
+
+    /**
+     * 获取单元格对应的日期数字。
+     *
+     * @param cell 单元格序号
+     * @return 日期数字，空白单元格返回 0
+     */
+    public int dayOfCell(int cell) {
+        int day = cell - firstOffset + 1;
+        return day >= 1 && day <= daysInMonth ? day : 0;
+    }
+
+    /**
+     * 获取日期所在的单元格。
+     *
+     * @param day 日期数字
+     * @return 单元格序号
+     */
+    public int cellOfDay(int day) {
+        return firstOffset + day - 1;
+    }
+
+    public int getDaysInMonth() {
+        return daysInMonth;
+    }
+
+    public String getPreviewText(int cell) {
+        return previewTexts[cell];
+    }
+
+    public String getContentDescription(int cell) {
+        return contentDescriptions[cell];
+    }
+
+    /**
+     * 生成单元格中的事件预览文本：最多显示 MAX_EVENTS_TO_SHOW 个事件，其余以"+N更多"表示。
+     */
+    private static String previewText(List<Event> dayEvents) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < Math.min(dayEvents.size(), MAX_EVENTS_TO_SHOW); i++) {
+            Event event = dayEvents.get(i);
+            String description = event.getDescription();
+            if (description.length() > MAX_CHARS_PER_EVENT) {
+                description = description.substring(0, MAX_CHARS_PER_EVENT) + "…";
+            }
+            builder.append("• ").append(event.getStartTime()).append(' ').append(description).append('\n');
+        }
+        if (dayEvents.size() > MAX_EVENTS_TO_SHOW) {
+            builder.append('+').append(dayEvents.size() - MAX_EVENTS_TO_SHOW).append("更多");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 生成某一天的无障碍描述，内容与原来单元格上的描述一致。
+     */
+    private static String contentDescription(LocalDate date, List<Event> dayEvents) {
+        StringBuilder description = new StringBuilder(date.getMonthValue() + "月" + date.getDayOfMonth() + "日");
+        if (dayEvents != null && !dayEvents.isEmpty()) {
+            description.append("，包含").append(dayEvents.size()).append("个事件");
+            for (Event event : dayEvents) {
+                description.append("，").append(event.getStartTime()).append(event.getDescription());
+            }
+        }
+        return description.toString();
+    }
+}
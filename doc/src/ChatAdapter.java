@@ -0,0 +1,210 @@
+/**
+ * ChatAdapter 类是 AI 对话记录的 RecyclerView 适配器。
+ * 用户消息、AI 文本回复和 AI 日程方案各自使用独立的视图类型，消息视图随滚动回收复用，
+ * 新列表由 ListAdapter 在后台线程上用 DiffUtil 与旧列表比较，追加一条消息只会绑定这一条。
+ */
+public class ChatAdapter extends ListAdapter<ChatMessage, RecyclerView.ViewHolder> {
+
+    // 只刷新日程方案中事件行的 payload，用于勾选和编辑之后
+    static final Object PAYLOAD_EVENTS = new Object();
+    // 流式回复追加了文本或事件的 payload
+    static final Object PAYLOAD_STREAM = new Object();
+
+    /**
+     * 日程方案上的操作回调。
+     */
+    public interface Callbacks {
+        /**
+         * 点击了方案中某个事件的编辑按钮。
+         */
+        void onEditEvent(ChatMessage message, Event event);
+
+        /**
+         * 点击了方案的"添加到日历"按钮。
+         */
+        void onAddSelectedEvents(ChatMessage message);
+    }
+
+    private static final DiffUtil.ItemCallback<ChatMessage> DIFF_CALLBACK = new DiffUtil.ItemCallback<ChatMessage>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ChatMessage oldItem, @NonNull ChatMessage newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ChatMessage oldItem, @NonNull ChatMessage newItem) {
+            // 消息内容创建后不再改变，勾选和编辑通过 payload 单独刷新
+            return oldItem == newItem;
+        }
+    };
+
+    private final Callbacks callbacks;
+
+    public ChatAdapter(Callbacks callbacks) {
+        super(DIFF_CALLBACK);
+        this.callbacks = callbacks;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getId();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return getItem(position).getType();
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        if (viewType == ChatMessage.TYPE_USER) {
+            return new UserHolder(inflater.inflate(R.layout.user_message_layout, parent, false));
+        }
+        return new AssistantHolder(inflater.inflate(R.layout.ai_response_layout, parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        ChatMessage message = getItem(position);
+        if (holder instanceof UserHolder) {
+            ((UserHolder) holder).messageText.setText(message.getText());
+        } else {
+            ((AssistantHolder) holder).bind(message);
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_STREAM) && holder instanceof AssistantHolder) {
+            ((AssistantHolder) holder).bind(getItem(position));
+            return;
+        }
+        if (payloads.contains(PAYLOAD_EVENTS) && holder instanceof AssistantHolder) {
+            ((AssistantHolder) holder).bindEvents(getItem(position));
+            return;
+        }
+        onBindViewHolder(holder, position);
+    }
+
+    /**
+     * 刷新一条日程方案中的事件行。
+     *
+     * @param message 日程方案消息
+     */
+    public void notifyEventsChanged(ChatMessage message) {
+        notifyMessageChanged(message, PAYLOAD_EVENTS);
+    }
+
+    /**
+     * 刷新一条流式接收中的回复。
+     *
+     * @param message 流式接收中的消息
+     */
+    public void notifyStreamChanged(ChatMessage message) {
+        notifyMessageChanged(message, PAYLOAD_STREAM);
+    }
+
+    private void notifyMessageChanged(ChatMessage message, Object payload) {
+        List<ChatMessage> messages = getCurrentList();
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i).getId() == message.getId()) {
+                notifyItemChanged(i, payload);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 用户消息。
+     */
+    static class UserHolder extends RecyclerView.ViewHolder {
+        final TextView messageText;
+
+        UserHolder(View itemView) {
+            super(itemView);
+            messageText = itemView.findViewById(R.id.userMessageTV);
+        }
+    }
+
+    /**
+     * AI 回复，文本回复和日程方案共用同一布局，日程方案显示事件列表和添加按钮。
+     */
+    class AssistantHolder extends RecyclerView.ViewHolder {
+        final TextView messageText;
+        final LinearLayout eventsContainer;
+        final Button addButton;
+
+        AssistantHolder(View itemView) {
+            super(itemView);
+            messageText = itemView.findViewById(R.id.aiMessageTV);
+            eventsContainer = itemView.findViewById(R.id.eventsContainer);
+            addButton = itemView.findViewById(R.id.addToCalendarBtn);
+        }
+
+        void bind(ChatMessage message) {
+            if (message.isStreaming()) {
+                // 接收中同时显示已生成的文本和已解析的事件，完成后再提供添加按钮
+                messageText.setVisibility(View.VISIBLE);
+                messageText.setText(message.getText());
+                eventsContainer.setVisibility(message.getEvents().isEmpty() ? View.GONE : View.VISIBLE);
+                addButton.setVisibility(View.GONE);
+                addButton.setOnClickListener(null);
+                bindEvents(message);
+            } else if (message.getType() == ChatMessage.TYPE_ASSISTANT_PLAN) {
+                // 隐藏原始文本，显示事件列表
+                messageText.setVisibility(View.GONE);
+                eventsContainer.setVisibility(View.VISIBLE);
+                addButton.setVisibility(View.VISIBLE);
+                addButton.setOnClickListener(v -> callbacks.onAddSelectedEvents(message));
+                bindEvents(message);
+            } else {
+                // 没有解析出事件，显示原始文本
+                messageText.setVisibility(View.VISIBLE);
+                eventsContainer.setVisibility(View.GONE);
+                addButton.setVisibility(View.GONE);
+                addButton.setOnClickListener(null);
+                messageText.setText(message.getText());
+            }
+        }
+
+        /**
+         * 绑定方案中的事件行，复用容器中已有的行视图，只在行数不够时才加载新行。
+         */
+        void bindEvents(ChatMessage message) {
+            List<Event> events = message.getEvents();
+            LayoutInflater inflater = LayoutInflater.from(itemView.getContext());
+            while (eventsContainer.getChildCount() < events.size()) {
+                eventsContainer.addView(inflater.inflate(R.layout.event_item_layout, eventsContainer, false));
+            }
+            while (eventsContainer.getChildCount() > events.size()) {
+                eventsContainer.removeViewAt(eventsContainer.getChildCount() - 1);
+            }
+
+            for (int i = 0; i < events.size(); i++) {
+                Event event = events.get(i);
+                View eventView = eventsContainer.getChildAt(i);
+                TextView timeTV = eventView.findViewById(R.id.eventTimeTV);
+                TextView descTV = eventView.findViewById(R.id.eventDescTV);
+                ImageView selectBtn = eventView.findViewById(R.id.selectBtn);
+                ImageView editBtn = eventView.findViewById(R.id.editBtn);
+
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                    timeTV.setText(event.getStartTime() + " - " + event.getEndTime());
+                }
+                descTV.setText(event.getDescription());
+                selectBtn.setImageResource(message.isSelected(event)
+                        ? R.drawable.ic_checkbox_checked : R.drawable.ic_checkbox_unchecked);
+                selectBtn.setOnClickListener(v -> selectBtn.setImageResource(message.toggleSelected(event)
+                        ? R.drawable.ic_checkbox_checked : R.drawable.ic_checkbox_unchecked));
+                editBtn.setOnClickListener(v -> callbacks.onEditEvent(message, event));
+                // 接收中的事件还可能被替换，暂不允许勾选和编辑
+                int actionVisibility = message.isStreaming() ? View.INVISIBLE : View.VISIBLE;
+                selectBtn.setVisibility(actionVisibility);
+                editBtn.setVisibility(actionVisibility);
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * ChatMessage 类是 AI 对话记录中的一条消息。
+ * 消息内容在创建时就确定：AI 回复中的事件只在创建时解析一次，之后绑定视图不再重复解析。
+ * 只有日程方案中事件的勾选状态和编辑结果会在之后改变，改变后由适配器按 payload 局部刷新。
+ * 流式接收中的 AI 回复是例外：文本和已解析的事件随回复追加，接收完成后换成一条内容固定、ID 相同的消息。
+ */
+public class ChatMessage {
+
+    // 消息类型：用户消息
+    public static final int TYPE_USER = 0;
+    // 消息类型：AI 的普通文本回复
+    public static final int TYPE_ASSISTANT_TEXT = 1;
+    // 消息类型：AI 回复中解析出了日程方案
+    public static final int TYPE_ASSISTANT_PLAN = 2;
+
+    // 用于生成稳定 ID 的计数器
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    // 稳定 ID，用于 RecyclerView 和 DiffUtil
+    private final long id;
+    // 消息类型
+    private final int type;
+    // 消息文本
+    private final StringBuilder text;
+    // 日程方案中的事件，其他类型为空列表
+    private List<Event> events;
+    // 是否仍在流式接收中
+    private final boolean streaming;
+    // 日程方案中被勾选的事件，按勾选顺序排列
+    private final Map<String, Event> selectedEvents = new LinkedHashMap<>();
+
+    private ChatMessage(int type, String text, List<Event> events) {
+        this(NEXT_ID.getAndIncrement(), type, text, events, false);
+    }
+
+    private ChatMessage(long id, int type, String text, List<Event> events, boolean streaming) {
+        this.id = id;
+        this.type = type;
+        this.text = new StringBuilder(text);
+        this.events = events;
+        this.streaming = streaming;
+    }
+
+    /**
+     * 创建一条用户消息。
+     *
+     * @param text 消息文本
+     * @return 消息
+     */
+    public static ChatMessage user(String text) {
+        return new ChatMessage(TYPE_USER, text, Collections.emptyList());
+    }
+
+    /**
+     * 创建一条 AI 回复，解析出事件时为日程方案，否则为普通文本。
+     *
+     * @param text   回复文本
+     * @param events 从回复中解析出的事件
+     * @return 消息
+     */
+    public static ChatMessage assistant(String text, List<Event> events) {
+        if (events == null || events.isEmpty()) {
+            return new ChatMessage(TYPE_ASSISTANT_TEXT, text, Collections.emptyList());
+        }
+        return new ChatMessage(TYPE_ASSISTANT_PLAN, text, Collections.unmodifiableList(new ArrayList<>(events)));
+    }
+
+    /**
+     * 创建一条正在流式接收的 AI 回复，初始内容为空。
+     *
+     * @return 消息
+     */
+    public static ChatMessage streaming() {
+        return new ChatMessage(NEXT_ID.getAndIncrement(), TYPE_ASSISTANT_TEXT, "", Collections.emptyList(), true);
+    }
+
+    /**
+     * 流式接收完成，生成内容固定的消息，沿用当前消息的 ID，界面上原地替换。
+     *
+     * @param text   完整的回复文本
+     * @param events 从回复中解析出的事件
+     * @return 消息
+     */
+    public ChatMessage finishStreaming(String text, List<Event> events) {
+        if (events == null || events.isEmpty()) {
+            return new ChatMessage(id, TYPE_ASSISTANT_TEXT, text, Collections.emptyList(), false);
+        }
+        return new ChatMessage(id, TYPE_ASSISTANT_PLAN, text,
+                Collections.unmodifiableList(new ArrayList<>(events)), false);
+    }
+
+    /**
+     * 追加流式接收到的文本。
+     *
+     * @param delta 新增的文本
+     */
+    public void appendStreamingText(String delta) {
+        text.append(delta);
+    }
+
+    /**
+     * 更新流式接收中已解析出的事件。
+     *
+     * @param events 已解析的事件
+     */
+    public void setStreamingEvents(List<Event> events) {
+        this.events = Collections.unmodifiableList(new ArrayList<>(events));
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public String getText() {
+        return text.toString();
+    }
+
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    /**
+     * 判断事件是否被勾选。
+     *
+     * @param event 方案中的事件
+     * @return 已勾选时返回 true
+     */
+    public boolean isSelected(Event event) {
+        return selectedEvents.containsKey(event.getId());
+    }
+
+    /**
+     * 切换事件的勾选状态。
+     *
+     * @param event 方案中的事件
+     * @return 切换后是否为勾选状态
+     */
+    public boolean toggleSelected(Event event) {
+        if (selectedEvents.remove(event.getId()) != null) {
+            return false;
+        }
+        selectedEvents.put(event.getId(), event);
+        return true;
+    }
+
+    /**
+     * 获取被勾选的事件。
+     *
+     * @return 勾选事件的副本
+     */
+    public List<Event> getSelectedEvents() {
+        return new ArrayList<>(selectedEvents.values());
+    }
+
+    public void clearSelection() {
+        selectedEvents.clear();
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * CircuitBreaker 类在网关持续失败时快速失败，避免继续向故障中的网关发送请求。
+ * 关闭状态下正常放行；连续失败达到阈值后打开，打开期间所有请求直接被拒绝；
+ * 打开时长结束后进入半开状态，只放行一个试探请求，成功则关闭，失败则重新打开。
+ */
+public class CircuitBreaker {
+    private static final String TAG = "CircuitBreaker";
+
+    // 状态：正常放行
+    static final int CLOSED = 0;
+    // 状态：拒绝所有请求
+    static final int OPEN = 1;
+    // 状态：已放行一个试探请求，等待其结果
+    static final int HALF_OPEN = 2;
+
+    // 打开前允许的连续失败次数
+    private final int failureThreshold;
+    // 打开的时长（毫秒）
+    private final long openDurationMs;
+
+    // 当前状态
+    private int state = CLOSED;
+    // 连续失败次数
+    private int consecutiveFailures;
+    // 打开的时刻（SystemClock.elapsedRealtime）
+    private long openedAt;
+
+    /**
+     * 构造函数。
+     *
+     * @param failureThreshold 打开前允许的连续失败次数
+     * @param openDurationMs   打开的时长（毫秒）
+     */
+    public CircuitBreaker(int failureThreshold, long openDurationMs) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationMs = openDurationMs;
+    }
+
+    /**
+     * 核心函数：判断是否放行一次请求。打开时长结束后的第一个请求作为试探请求放行。
+     *
+     * @return 放行时返回 true，放行后必须调用 onSuccess、onFailure 或 onAbandoned
+     */
+    public synchronized boolean allowRequest() {
+        if (state == CLOSED) {
+            return true;
+        }
+        if (state == OPEN && SystemClock.elapsedRealtime() - openedAt >= openDurationMs) {
+            state = HALF_OPEN;
+            Log.d(TAG, "熔断器半开，放行试探请求");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 请求成功，关闭熔断器并清零失败计数。
+     */
+    public synchronized void onSuccess() {
+        if (state != CLOSED) {
+            Log.d(TAG, "熔断器关闭");
+        }
+        state = CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * 请求失败，试探请求失败或连续失败达到阈值时打开熔断器。
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != OPEN) {
+                Log.w(TAG, "熔断器打开，连续失败 " + consecutiveFailures + " 次");
+            }
+            state = OPEN;
+            openedAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    /**
+     * 放行的请求被取消或中断，没有得到网关的结果：不改变失败计数。
+     * 被放弃的是试探请求时回到打开状态，下一个请求可以立即重新试探。
+     */
+    public synchronized void onAbandoned() {
+        if (state == HALF_OPEN) {
+            state = OPEN;
+            openedAt = SystemClock.elapsedRealtime() - openDurationMs;
+        }
+    }
+
+    /**
+     * 获取当前状态。
+     *
+     * @return CLOSED、OPEN 或 HALF_OPEN
+     */
+    public synchronized int getState() {
+        return state;
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * DayIntervalIndex 类是单个日期内事件时间区间的静态区间树。
+ * 事件按开始时间排序后存放在数组中，以数组的二分结构作为隐式平衡树，
+ * 每个节点记录其子树中最大的结束时间，查询与 [start, end) 重叠的事件只需 O(log n + k)。
+ * 索引不可变，日期内的事件变化时由事件仓库重新构建。
+ */
+public class DayIntervalIndex {
+
+    // 按开始时间排序的事件
+    private final Event[] events;
+    // 每个事件的开始分钟
+    private final int[] starts;
+    // 每个事件的结束分钟
+    private final int[] ends;
+    // 以该位置为根的子树中最大的结束分钟
+    private final int[] maxEnds;
+
+    /**
+     * 构造函数，根据某一天的事件构建区间树，无效事件会被忽略。
+     *
+     * @param dayEvents 同一天的事件
+     */
+    public DayIntervalIndex(List<Event> dayEvents) {
+        List<Event> sorted = new ArrayList<>(dayEvents.size());
+        for (Event event : dayEvents) {
+            if (event.isValid()) {
+                sorted.add(event);
+            }
+        }
+        Collections.sort(sorted);
+
+        int size = sorted.size();
+        events = sorted.toArray(new Event[size]);
+        starts = new int[size];
+        ends = new int[size];
+        maxEnds = new int[size];
+        for (int i = 0; i < size; i++) {
+            starts[i] = events[i].getStartMinute();
+            ends[i] = events[i].getEndMinute();
+        }
+        buildMaxEnds(0, size - 1);
+    }
+
+    /**
+     * 核心函数：查询与 [startMinute, endMinute) 重叠的所有事件。
+     *
+     * @param startMinute 区间开始分钟（包含）
+     * @param endMinute   区间结束分钟（不包含）
+     * @return 按开始时间排序的重叠事件
+     */
+    public List<Event> findOverlapping(int startMinute, int endMinute) {
+        List<Event> result = new ArrayList<>();
+        if (startMinute < endMinute) {
+            collect(0, events.length - 1, startMinute, endMinute, result);
+        }
+        return result;
+    }
+
+    /**
+     * 判断索引中是否没有任何事件。
+     *
+     * @return 没有事件时返回 true
+     */
+    public boolean isEmpty() {
+        return events.length == 0;
+    }
+
+    /**
+     * 自底向上计算每个子树的最大结束时间。
+     */
+    private int buildMaxEnds(int lo, int hi) {
+        if (lo > hi) {
+            return Integer.MIN_VALUE;
+        }
+        int mid = (lo + hi) >>> 1;
+        int max = Math.max(ends[mid], Math.max(buildMaxEnds(lo, mid - 1), buildMaxEnds(mid + 1, hi)));
+        maxEnds[mid] = max;
+        return max;
+    }
+
+    /**
+     * 按中序遍历收集重叠事件，跳过不可能重叠的子树。
+     */
+    private void collect(int lo, int hi, int startMinute, int endMinute, List<Event> result) {
+        if (lo > hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        // 子树中所有事件都在查询区间开始前结束
+        if (maxEnds[mid] <= startMinute) {
+            return;
+        }
+        collect(lo, mid - 1, startMinute, endMinute, result);
+        // 当前节点及右子树的事件都在查询区间结束后才开始
+        if (starts[mid] >= endMinute) {
+            return;
+        }
+        if (ends[mid] > startMinute) {
+            result.add(events[mid]);
+        }
+        collect(mid + 1, hi, startMinute, endMinute, result);
+    }
+}
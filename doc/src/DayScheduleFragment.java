@@ -6,8 +6,6 @@ public class DayScheduleFragment extends Fragment implements EventAdapter.OnItem
     private RecyclerView eventsRecyclerView;
     // 事件列表的适配器
     private EventAdapter eventAdapter;
-    // 存储事件的列表
-    private List<Event> eventsList = new ArrayList<>();
     // 当前选中的日期
     private LocalDate selectedDate;
 
@@ -43,8 +41,8 @@ public class DayScheduleFragment extends Fragment implements EventAdapter.OnItem
         // 初始化RecyclerView，设置布局管理器为线性布局
         eventsRecyclerView = view.findViewById(R.id.events_recycler_view);
         eventsRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
-        // 创建事件适配器，并将事件列表和点击监听器传递给它
-        eventAdapter = new EventAdapter(eventsList, this);
+        // 创建事件适配器，并将点击监听器和空列表提示传递给它
+        eventAdapter = new EventAdapter(new ArrayList<>(), this, "当天无日程安排");
         // 将适配器设置给RecyclerView
         eventsRecyclerView.setAdapter(eventAdapter);
 
@@ -78,7 +76,7 @@ public class DayScheduleFragment extends Fragment implements EventAdapter.OnItem
 
     /**
      * 核心函数：刷新当天的事件列表。
-     * 此函数会加载当天的事件，对事件按开始时间排序，更新事件列表并通知适配器数据已改变。
+     * 此函数会加载当天的事件，对事件按开始时间排序，并提交给适配器增量更新。
      */
     @RequiresApi(api = Build.VERSION_CODES.O)
     private void refreshEvents() {
@@ -87,15 +85,11 @@ public class DayScheduleFragment extends Fragment implements EventAdapter.OnItem
 
         // 加载当天的事件
         List<Event> events = loadEventsForDate(selectedDate);
-        // 对事件按开始时间排序
-        events.sort(Comparator.comparing(Event::getStartTime));
-
-        // 清空当前事件列表
-        eventsList.clear();
-        // 将加载的事件添加到事件列表中
-        eventsList.addAll(events);
-        // 通知适配器数据已改变
-        eventAdapter.notifyDataSetChanged();
+        // 对事件按开始时间排序，使用 Event 基于原始字段的自然顺序
+        Collections.sort(events);
+
+        // 提交新列表，适配器在后台比较后只刷新变化的行
+        eventAdapter.submitList(events);
     }
 
     /**
@@ -115,12 +109,20 @@ public class DayScheduleFragment extends Fragment implements EventAdapter.OnItem
                 return false;
             }
 
+            @Override
+            public int getSwipeDirs(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder viewHolder) {
+                // 空列表提示行不能滑动删除
+                if (viewHolder.getItemViewType() == EventAdapter.TYPE_EMPTY) return 0;
+                return super.getSwipeDirs(recyclerView, viewHolder);
+            }
+
             @Override
             public void onSwiped(@NonNull RecyclerView.ViewHolder viewHolder, int direction) {
                 // 获取被滑动的事件的位置
                 int position = viewHolder.getAdapterPosition();
                 // 获取该位置的事件
                 Event event = eventAdapter.getEventAt(position);
+                if (event == null) return;
                 // 删除该事件
                 deleteEvent(event);
                 // 从适配器中移除该事件
@@ -143,6 +145,7 @@ public class DayScheduleFragment extends Fragment implements EventAdapter.OnItem
     public void onDeleteClick(int position) {
         // 获取指定位置的事件
         Event event = eventAdapter.getEventAt(position);
+        if (event == null) return;
         // 删除该事件
         deleteEvent(event);
         // 从适配器中移除该事件
@@ -151,39 +154,14 @@ public class DayScheduleFragment extends Fragment implements EventAdapter.OnItem
 
     /**
      * 从存储中删除指定的事件。
-     * 此函数会从SharedPreferences中删除指定的事件，并通知日历界面更新。
+     * 此函数会从事件仓库中删除指定的事件，并通知日历界面更新。
      *
      * @param event 要删除的事件
      */
+    @RequiresApi(api = Build.VERSION_CODES.O)
     private void deleteEvent(Event event) {
-        // 获取SharedPreferences实例
-        SharedPreferences prefs = requireActivity().getSharedPreferences("events_prefs", Context.MODE_PRIVATE);
-        // 获取事件日期对应的键
-        String dateKey = event.getDate().toString();
-
-        // 获取Gson实例
-        Gson gson = GsonUtils.getGson();
-        // 获取事件列表的类型
-        Type type = new TypeToken<ArrayList<Event>>(){}.getType();
-
-        // 从SharedPreferences中获取该日期的事件列表的JSON字符串
-        String eventJson = prefs.getString(dateKey, "[]");
-        // 将JSON字符串转换为事件列表
-        List<Event> events = gson.fromJson(eventJson, type);
-
-        // 通过ID查找并删除事件
-        for (Iterator<Event> iterator = events.iterator(); iterator.hasNext();) {
-            Event e = iterator.next();
-            if (e.getId().equals(event.getId())) {
-                iterator.remove();
-                break;
-            }
-        }
-
-        // 将更新后的事件列表转换为JSON字符串
-        String updatedJson = gson.toJson(events);
-        // 将更新后的JSON字符串保存到SharedPreferences中
-        prefs.edit().putString(dateKey, updatedJson).apply();
+        // 从事件仓库中删除事件
+        EventRepository.getInstance(requireActivity()).deleteEvent(event);
 
         // 通知日历界面更新
         if (getActivity() instanceof MainActivity) {
@@ -196,7 +174,7 @@ public class DayScheduleFragment extends Fragment implements EventAdapter.OnItem
 
     /**
      * 加载指定日期的有效事件列表。
-     * 此函数会从SharedPreferences中获取指定日期的事件列表，并过滤掉无效的事件。
+     * 此函数会从事件仓库中获取指定日期的事件列表，并过滤掉无效的事件。
      *
      * @param date 要加载事件的日期
      * @return 返回指定日期的有效事件列表
@@ -208,30 +186,7 @@ public class DayScheduleFragment extends Fragment implements EventAdapter.OnItem
             return new ArrayList<>();
         }
 
-        // 获取SharedPreferences实例
-        SharedPreferences prefs = requireActivity().getSharedPreferences("events_prefs", Context.MODE_PRIVATE);
-        // 从SharedPreferences中获取该日期的事件列表的JSON字符串
-        String eventJson = prefs.getString(date.toString(), "[]");
-
-        // 获取Gson实例
-        Gson gson = GsonUtils.getGson();
-        // 获取事件列表的类型
-        Type type = new TypeToken<ArrayList<Event>>(){}.getType();
-
-        // 将JSON字符串转换为事件列表
-        List<Event> events = gson.fromJson(eventJson, type);
-        // 用于存储有效的事件
-        List<Event> validEvents = new ArrayList<>();
-
-        // 过滤无效事件
-        for (Event event : events) {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                if (event.getDate() != null && event.getStartTimeAsLocalTime() != null && event.getEndTimeAsLocalTime() != null) {
-                    validEvents.add(event);
-                }
-            }
-        }
-
-        return validEvents;
+        // 从事件仓库中获取该日期的事件列表，仓库只返回有效事件
+        return EventRepository.getInstance(requireActivity()).getEventsForDate(date);
     }
 }
\ No newline at end of file
@@ -1,37 +1,49 @@
-public class Event {
+public class Event implements Comparable<Event> {
+
+    // 日期为空时使用的占位值
+    static final int NO_DATE = Integer.MIN_VALUE;
+    // 时间为空时使用的占位值
+    static final short NO_TIME = -1;
+
+    // 一天的分钟数
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    // "HH:mm" 字符串缓存，按一天中的分钟数索引，避免每次格式化都分配新字符串
+    private static final String[] TIME_STRINGS = new String[MINUTES_PER_DAY];
 
     // 事件的唯一标识符
-    @SerializedName("id")
     private String id;
 
-    // 事件发生的日期
-    @SerializedName("date")
-    private LocalDate date;
+    // 事件发生的日期，以纪元日（1970-01-01 起的天数）表示
+    private int epochDay = NO_DATE;
 
-    // 事件开始的时间
-    @SerializedName("startTime")
-    private LocalTime startTime;
+    // 事件开始的时间，以一天中的分钟数表示
+    private short startMinute = NO_TIME;
 
-    // 事件结束的时间
-    @SerializedName("endTime")
-    private LocalTime endTime;
+    // 事件结束的时间，以一天中的分钟数表示
+    private short endMinute = NO_TIME;
 
     // 事件的描述信息
     private String description;
 
+    // 重复规则，只有重复系列的主事件才有，普通事件为 null
+    private RecurrenceRule recurrence;
+
+    // 所属重复系列的 ID，只有按需展开出来的实例才有，普通事件为 null
+    private String seriesId;
+
     /**
      * 无参构造函数，用于创建一个新的事件对象。
-     * 为事件生成一个唯一的 UUID 作为标识符。
+     * 为事件生成一个按时间排序的紧凑 ID 作为标识符，参见 EventIds。
      */
     public Event() {
-        // 生成一个唯一的 UUID 字符串作为事件的 ID
-        this.id = UUID.randomUUID().toString();
+        // 生成唯一的紧凑 ID，比 UUID 更短，生成时也不需要 SecureRandom
+        this.id = EventIds.next();
     }
 
     /**
      * 有参构造函数，用于创建一个具有指定日期、开始时间、结束时间和描述的事件对象。
      * 调用无参构造函数生成事件的唯一标识符。
-     * 
+     *
      * @param date        事件发生的日期
      * @param startTime   事件开始的时间
      * @param endTime     事件结束的时间
@@ -42,18 +54,50 @@ public class Event {
         // 调用无参构造函数生成事件的 ID
         this();
         // 设置事件的日期
-        this.date = date;
+        this.epochDay = toEpochDay(date);
         // 设置事件的开始时间
-        this.startTime = startTime;
+        this.startMinute = toMinute(startTime);
         // 设置事件的结束时间
-        this.endTime = endTime;
+        this.endMinute = toMinute(endTime);
         // 设置事件的描述信息
         this.description = description;
     }
 
+    /**
+     * 恢复构造函数，用于从存储中还原一个已有的事件对象。
+     * 与公开构造函数不同，这里直接使用存储中的 ID，不会重新生成 ID。
+     *
+     * @param id          事件原有的唯一标识符
+     * @param date        事件发生的日期
+     * @param startTime   事件开始的时间
+     * @param endTime     事件结束的时间
+     * @param description 事件的描述信息
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    Event(String id, LocalDate date, LocalTime startTime, LocalTime endTime, String description) {
+        this(id, toEpochDay(date), toMinute(startTime), toMinute(endTime), description);
+    }
+
+    /**
+     * 恢复构造函数，直接使用紧凑的原始字段还原事件，不经过 java.time 对象。
+     *
+     * @param id          事件原有的唯一标识符
+     * @param epochDay    事件日期的纪元日，没有日期时为 NO_DATE
+     * @param startMinute 开始时间在一天中的分钟数，没有时间时为 NO_TIME
+     * @param endMinute   结束时间在一天中的分钟数，没有时间时为 NO_TIME
+     * @param description 事件的描述信息
+     */
+    Event(String id, int epochDay, int startMinute, int endMinute, String description) {
+        this.id = id;
+        this.epochDay = epochDay;
+        this.startMinute = (short) startMinute;
+        this.endMinute = (short) endMinute;
+        this.description = description;
+    }
+
     /**
      * 获取事件的唯一标识符。
-     * 
+     *
      * @return 事件的唯一标识符
      */
     public String getId() {
@@ -61,35 +105,127 @@ public class Event {
     }
 
     /**
-     * 获取事件发生的日期。
-     * 
-     * @return 事件发生的日期
+     * 获取事件发生的日期。只在界面等需要 java.time 对象的地方调用。
+     *
+     * @return 事件发生的日期，没有日期时返回 null
      */
+    @RequiresApi(api = Build.VERSION_CODES.O)
     public LocalDate getDate() {
-        return date;
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * 获取事件日期的纪元日表示。
+     *
+     * @return 纪元日，没有日期时返回 NO_DATE
+     */
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * 获取事件开始时间在一天中的分钟数。
+     *
+     * @return 分钟数，没有开始时间时返回 NO_TIME
+     */
+    public int getStartMinute() {
+        return startMinute;
+    }
+
+    /**
+     * 获取事件结束时间在一天中的分钟数。
+     *
+     * @return 分钟数，没有结束时间时返回 NO_TIME
+     */
+    public int getEndMinute() {
+        return endMinute;
+    }
+
+    /**
+     * 判断事件的日期、开始时间和结束时间是否都存在。
+     *
+     * @return 三者都存在时返回 true
+     */
+    public boolean isValid() {
+        return epochDay != NO_DATE && startMinute != NO_TIME && endMinute != NO_TIME;
+    }
+
+    /**
+     * 获取事件的重复规则。
+     *
+     * @return 重复规则，不是重复系列时返回 null
+     */
+    public RecurrenceRule getRecurrence() {
+        return recurrence;
+    }
+
+    /**
+     * 设置事件的重复规则。事件的日期即为系列的第一个实例日期。
+     *
+     * @param recurrence 重复规则，为 null 表示不重复
+     */
+    public void setRecurrence(RecurrenceRule recurrence) {
+        this.recurrence = recurrence;
+    }
+
+    /**
+     * 获取该实例所属重复系列的 ID。
+     *
+     * @return 系列 ID，不是重复实例时返回 null
+     */
+    public String getSeriesId() {
+        return seriesId;
+    }
+
+    /**
+     * 为重复系列创建指定日期的虚拟实例。实例只存在于内存中，不会被保存。
+     *
+     * @param occurrenceEpochDay 实例日期的纪元日
+     * @return 该日期的实例
+     */
+    Event createOccurrence(int occurrenceEpochDay) {
+        Event occurrence = new Event(id + "@" + occurrenceEpochDay, occurrenceEpochDay, startMinute, endMinute, description);
+        occurrence.seriesId = id;
+        return occurrence;
+    }
+
+    /**
+     * 创建一个字段完全相同的副本，ID 不变。事件仓库只保存和返回副本，
+     * 调用方修改自己持有的事件对象不会影响仓库中的索引。
+     *
+     * @return 事件的副本
+     */
+    Event copy() {
+        Event copy = new Event(id, epochDay, startMinute, endMinute, description);
+        // 重复规则不可变，可以共享
+        copy.recurrence = recurrence;
+        copy.seriesId = seriesId;
+        return copy;
     }
 
     /**
      * 设置事件的开始时间。
-     * 
+     *
      * @param startTime 事件的开始时间
      */
+    @RequiresApi(api = Build.VERSION_CODES.O)
     public void setStartTime(LocalTime startTime) {
-        this.startTime = startTime;
+        this.startMinute = toMinute(startTime);
     }
 
     /**
      * 设置事件的结束时间。
-     * 
+     *
      * @param endTime 事件的结束时间
      */
+    @RequiresApi(api = Build.VERSION_CODES.O)
     public void setEndTime(LocalTime endTime) {
-        this.endTime = endTime;
+        this.endMinute = toMinute(endTime);
     }
 
     /**
      * 设置事件的描述信息。
-     * 
+     *
      * @param description 事件的描述信息
      */
     public void setDescription(String description) {
@@ -99,82 +235,110 @@ public class Event {
     /**
      * 获取事件开始时间的字符串表示，格式为 "HH:mm"。
      * 如果开始时间为空，则返回 "error"。
-     * 
+     *
      * @return 事件开始时间的字符串表示或 "error"
      */
-    @RequiresApi(api = Build.VERSION_CODES.O)
     public String getStartTime() {
-        // 检查开始时间是否为空
-        if (startTime != null) {
-            // 格式化开始时间为 "HH:mm" 格式
-            return startTime.format(DateTimeFormatter.ofPattern("HH:mm"));
-        }
-        // 开始时间为空时返回 "error"
-        return "error";
+        return formatMinute(startMinute);
     }
 
     /**
      * 获取事件开始时间的 LocalTime 类型表示。
-     * 
+     *
      * @return 事件开始时间的 LocalTime 类型表示
      */
+    @RequiresApi(api = Build.VERSION_CODES.O)
     public LocalTime getStartTimeAsLocalTime() {
-        return startTime;
+        return toLocalTime(startMinute);
     }
 
     /**
      * 获取事件结束时间的字符串表示，格式为 "HH:mm"。
      * 如果结束时间为空，则返回 "error"。
-     * 
+     *
      * @return 事件结束时间的字符串表示或 "error"
      */
-    @RequiresApi(api = Build.VERSION_CODES.O)
     public String getEndTime() {
-        // 检查结束时间是否为空
-        if (endTime != null) {
-            // 格式化结束时间为 "HH:mm" 格式
-            return endTime.format(DateTimeFormatter.ofPattern("HH:mm"));
-        }
-        // 结束时间为空时返回 "error"
-        return "error";
+        return formatMinute(endMinute);
     }
 
     /**
      * 获取事件结束时间的 LocalTime 类型表示。
-     * 
+     *
      * @return 事件结束时间的 LocalTime 类型表示
      */
+    @RequiresApi(api = Build.VERSION_CODES.O)
     public LocalTime getEndTimeAsLocalTime() {
-        return endTime;
+        return toLocalTime(endMinute);
     }
 
     /**
      * 获取事件的描述信息。
-     * 
+     *
      * @return 事件的描述信息
      */
     public String getDescription() {
         return description;
     }
 
+    /**
+     * 按日期、开始时间、结束时间、ID 的顺序比较两个事件，全部基于原始字段，不分配对象。
+     *
+     * @param other 另一个事件
+     * @return 比较结果
+     */
+    @Override
+    public int compareTo(Event other) {
+        int result = Integer.compare(epochDay, other.epochDay);
+        if (result != 0) return result;
+        result = Integer.compare(startMinute, other.startMinute);
+        if (result != 0) return result;
+        result = Integer.compare(endMinute, other.endMinute);
+        if (result != 0) return result;
+        return id.compareTo(other.id);
+    }
+
+    /**
+     * 两个事件的 ID、日期、时间和描述都相同时视为相等。
+     *
+     * @param o 另一个对象
+     * @return 相等时返回 true
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Event)) return false;
+        Event other = (Event) o;
+        return epochDay == other.epochDay
+                && startMinute == other.startMinute
+                && endMinute == other.endMinute
+                && id.equals(other.id)
+                && (description == null ? other.description == null : description.equals(other.description));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = id.hashCode();
+        result = 31 * result + epochDay;
+        result = 31 * result + startMinute;
+        result = 31 * result + endMinute;
+        result = 31 * result + (description == null ? 0 : description.hashCode());
+        return result;
+    }
+
     /**
      * 返回事件的字符串表示，格式为 "开始时间-结束时间: 描述信息"。
-     * 
+     *
      * @return 事件的字符串表示
      */
-    @RequiresApi(api = Build.VERSION_CODES.O)
     @Override
     public String toString() {
-        // 格式化开始时间和结束时间为 "HH:mm" 格式，并拼接描述信息
-        return String.format("%s-%s: %s",
-                startTime.format(DateTimeFormatter.ofPattern("HH:mm")),
-                endTime.format(DateTimeFormatter.ofPattern("HH:mm")),
-                description);
+        return getStartTime() + "-" + getEndTime() + ": " + description;
     }
 
     /**
      * 核心函数：创建一个新的事件对象。
-     * 
+     *
      * @param date        事件发生的日期
      * @param startTime   事件开始的时间
      * @param endTime     事件结束的时间
@@ -186,4 +350,42 @@ public class Event {
         // 调用有参构造函数创建新的事件对象
         return new Event(date, startTime, endTime, description);
     }
-}
\ No newline at end of file
+
+    /**
+     * 将一天中的分钟数格式化为 "HH:mm"，结果按分钟缓存。
+     *
+     * @param minute 分钟数
+     * @return "HH:mm" 字符串，分钟数无效时返回 "error"
+     */
+    static String formatMinute(int minute) {
+        if (minute < 0 || minute >= MINUTES_PER_DAY) {
+            return "error";
+        }
+        String cached = TIME_STRINGS[minute];
+        if (cached == null) {
+            int hour = minute / 60;
+            int min = minute % 60;
+            cached = new String(new char[] {
+                    (char) ('0' + hour / 10), (char) ('0' + hour % 10), ':',
+                    (char) ('0' + min / 10), (char) ('0' + min % 10)
+            });
+            TIME_STRINGS[minute] = cached;
+        }
+        return cached;
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private static int toEpochDay(LocalDate date) {
+        return date == null ? NO_DATE : (int) date.toEpochDay();
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    static short toMinute(LocalTime time) {
+        return time == null ? NO_TIME : (short) (time.getHour() * 60 + time.getMinute());
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private static LocalTime toLocalTime(int minute) {
+        return minute == NO_TIME ? null : LocalTime.of(minute / 60, minute % 60);
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ * EventAdapter 类是日程列表的 RecyclerView 适配器，用于今日日程和某一天的日程页面。
+ * 新列表通过 submitList 提交，由 AsyncListDiffer 在后台线程上与旧列表比较，
+ * 只有新增、删除或内容变化的行会被绑定；每行的稳定 ID 由事件 ID 推导。
+ * 列表为空时显示一个单独类型的提示行，不再需要在父布局中手动添加和移除提示视图。
+ */
+public class EventAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    // 视图类型：事件行
+    public static final int TYPE_EVENT = 0;
+    // 视图类型：列表为空时的提示行
+    public static final int TYPE_EMPTY = 1;
+    // 提示行的稳定 ID
+    private static final long EMPTY_ITEM_ID = Long.MIN_VALUE;
+
+    /**
+     * 行内按钮的点击回调。
+     */
+    public interface OnItemClickListener {
+        /**
+         * 点击了某一行的删除按钮。
+         *
+         * @param position 该行的位置
+         */
+        void onDeleteClick(int position);
+    }
+
+    private static final DiffUtil.ItemCallback<Event> DIFF_CALLBACK = new DiffUtil.ItemCallback<Event>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Event oldItem, @NonNull Event newItem) {
+            return oldItem.getId().equals(newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Event oldItem, @NonNull Event newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    private final OnItemClickListener listener;
+    // 列表为空时的提示文本
+    private final String emptyText;
+    // 是否正在显示提示行
+    private boolean emptyShown;
+
+    private final AsyncListDiffer<Event> differ = new AsyncListDiffer<>(new ListUpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {
+            if (emptyShown) {
+                // 从空列表变为非空，先移除提示行
+                emptyShown = false;
+                notifyItemRemoved(0);
+            }
+            notifyItemRangeInserted(position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            notifyItemRangeRemoved(position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            notifyItemMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            notifyItemRangeChanged(position, count, payload);
+        }
+    }, new AsyncDifferConfig.Builder<>(DIFF_CALLBACK).build());
+
+    /**
+     * 构造函数。
+     *
+     * @param events    初始的事件列表
+     * @param listener  行内按钮的点击回调
+     * @param emptyText 列表为空时的提示文本
+     */
+    public EventAdapter(List<Event> events, OnItemClickListener listener, String emptyText) {
+        this.listener = listener;
+        this.emptyText = emptyText;
+        setHasStableIds(true);
+        emptyShown = events.isEmpty();
+        if (!events.isEmpty()) {
+            differ.submitList(new ArrayList<>(events));
+        }
+    }
+
+    /**
+     * 核心函数：提交新的事件列表，比较在后台线程上完成，完成后只刷新变化的行。
+     *
+     * @param events 新的事件列表，提交后不应再修改
+     */
+    public void submitList(List<Event> events) {
+        differ.submitList(events, () -> {
+            if (differ.getCurrentList().isEmpty() && !emptyShown) {
+                emptyShown = true;
+                notifyItemInserted(0);
+            }
+        });
+    }
+
+    /**
+     * 获取指定位置的事件。
+     *
+     * @param position 位置
+     * @return 事件，提示行返回 null
+     */
+    public Event getEventAt(int position) {
+        if (emptyShown || position < 0 || position >= differ.getCurrentList().size()) {
+            return null;
+        }
+        return differ.getCurrentList().get(position);
+    }
+
+    /**
+     * 在仓库的变更通知到达之前先从列表中移除一个事件，使删除动画立即开始。
+     *
+     * @param position 位置
+     */
+    public void removeEvent(int position) {
+        if (getEventAt(position) == null) {
+            return;
+        }
+        List<Event> updated = new ArrayList<>(differ.getCurrentList());
+        updated.remove(position);
+        submitList(updated);
+    }
+
+    @Override
+    public int getItemCount() {
+        return emptyShown ? 1 : differ.getCurrentList().size();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return emptyShown ? TYPE_EMPTY : TYPE_EVENT;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return emptyShown ? EMPTY_ITEM_ID : stableIdOf(differ.getCurrentList().get(position).getId());
+    }
+
+    /**
+     * 由事件 ID 推导 64 位的稳定 ID：紧凑 ID 直接解码，UUID 折叠高低两半，其他 ID（例如重复实例）取 FNV-1a 哈希。
+     */
+    static long stableIdOf(String id) {
+        if (EventIds.isCompact(id)) {
+            return EventIds.decode(id);
+        }
+        if (id.length() == 36 && id.charAt(8) == '-') {
+            try {
+                UUID uuid = UUID.fromString(id);
+                return uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits();
+            } catch (IllegalArgumentException e) {
+                // 不是 UUID，按普通字符串处理
+            }
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (viewType == TYPE_EMPTY) {
+            TextView emptyView = new TextView(parent.getContext());
+            emptyView.setLayoutParams(new RecyclerView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            emptyView.setImportantForAccessibility(View.IMPORTANT_FOR_ACCESSIBILITY_YES);
+            emptyView.setTextSize(18);
+            emptyView.setGravity(Gravity.CENTER);
+            emptyView.setPadding(0, 32, 0, 32);
+            return new EmptyViewHolder(emptyView);
+        }
+        View itemView = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_event, parent, false);
+        return new EventViewHolder(itemView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        if (holder instanceof EmptyViewHolder) {
+            TextView emptyView = (TextView) holder.itemView;
+            emptyView.setText(emptyText);
+            emptyView.setContentDescription(emptyText);
+            return;
+        }
+        Event event = differ.getCurrentList().get(position);
+        EventViewHolder eventHolder = (EventViewHolder) holder;
+        eventHolder.timeText.setText(event.getStartTime() + " - " + event.getEndTime());
+        eventHolder.descriptionText.setText(event.getDescription());
+        eventHolder.itemView.setContentDescription(event.getStartTime() + "到" + event.getEndTime() + "，" + event.getDescription());
+    }
+
+    /**
+     * 事件行。
+     */
+    class EventViewHolder extends RecyclerView.ViewHolder {
+        final TextView timeText;
+        final TextView descriptionText;
+
+        EventViewHolder(View itemView) {
+            super(itemView);
+            timeText = itemView.findViewById(R.id.event_time);
+            descriptionText = itemView.findViewById(R.id.event_description);
+            ImageView deleteButton = itemView.findViewById(R.id.delete_button);
+            deleteButton.setOnClickListener(v -> {
+                int position = getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION && listener != null) {
+                    listener.onDeleteClick(position);
+                }
+            });
+        }
+    }
+
+    /**
+     * 列表为空时的提示行。
+     */
+    static class EmptyViewHolder extends RecyclerView.ViewHolder {
+        EmptyViewHolder(View itemView) {
+            super(itemView);
+        }
+    }
+}
@@ -8,11 +8,16 @@ public class EventEditorFragment extends Fragment {
     private EditText eventDescriptionEditText;
     // 显示日期的文本视图
     private TextView dateTextView;
+    // 选择重复方式的下拉框
+    private Spinner repeatSpinner;
     // 当前选择的日期
     private LocalDate currentDate;
     // 主活动实例，用于调用主活动的方法
     private MainActivity mainActivity;
 
+    // 重复方式选项，顺序与 repeatRuleForSelection 中的分支一致
+    private static final String[] REPEAT_OPTIONS = {"不重复", "每天", "工作日", "每周"};
+
     /**
      * 核心函数：创建并返回Fragment的视图
      * 该函数在Fragment创建视图时被调用，用于初始化界面组件，设置默认值，处理传递的日期参数，
@@ -39,6 +44,12 @@ public class EventEditorFragment extends Fragment {
         endTimeEditText = view.findViewById(R.id.endTimeET);
         // 找到事件描述编辑框
         eventDescriptionEditText = view.findViewById(R.id.eventDescriptionET);
+        // 创建重复方式下拉框，放在事件描述编辑框的下方
+        repeatSpinner = createRepeatSpinner(eventDescriptionEditText);
+        ArrayAdapter<String> repeatAdapter = new ArrayAdapter<>(requireContext(),
+                android.R.layout.simple_spinner_item, REPEAT_OPTIONS);
+        repeatAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        repeatSpinner.setAdapter(repeatAdapter);
 
         // 设置开始时间编辑框的默认值为09:00
         startTimeEditText.setText("09:00");
@@ -69,6 +80,11 @@ public class EventEditorFragment extends Fragment {
             }
         }
 
+        // 用当天第一个不少于 1 小时的空闲时段作为建议的默认时间
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            suggestFreeSlot();
+        }
+
         // 找到保存按钮
         Button saveButton = view.findViewById(R.id.saveEventBtn);
         // 找到返回按钮
@@ -84,6 +100,34 @@ public class EventEditorFragment extends Fragment {
         return view;
     }
 
+    /**
+     * 布局中没有重复方式的下拉框，在代码中创建并插入到指定视图之后
+     *
+     * @param anchor 下拉框插入在该视图之后
+     * @return 创建的下拉框
+     */
+    private Spinner createRepeatSpinner(View anchor) {
+        Spinner spinner = new Spinner(requireContext());
+        ViewGroup parent = (ViewGroup) anchor.getParent();
+        parent.addView(spinner, parent.indexOfChild(anchor) + 1, new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        return spinner;
+    }
+
+    /**
+     * 在当前日期 08:00 到 22:00 之间查找第一个不少于 1 小时的空闲时段，
+     * 找到时将其填入开始时间和结束时间编辑框
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void suggestFreeSlot() {
+        FreeSlotFinder.FreeSlot slot = new FreeSlotFinder(EventRepository.getInstance(requireActivity()))
+                .findFirstFreeSlot(currentDate, 8 * 60, 22 * 60, 60);
+        if (slot != null) {
+            startTimeEditText.setText(Event.formatMinute(slot.startMinute));
+            endTimeEditText.setText(Event.formatMinute(slot.startMinute + 60));
+        }
+    }
+
     /**
      * 核心函数：保存事件到日历
      * 该函数用于验证用户输入的时间和描述，创建事件对象，将事件添加到主活动的日历中，
@@ -113,7 +157,76 @@ public class EventEditorFragment extends Fragment {
 
             // 创建事件对象
             Event event = new Event(currentDate, startTime, endTime, description);
+            // 重复事件只保存一次规则，实例在查询时展开
+            event.setRecurrence(repeatRuleForSelection(repeatSpinner.getSelectedItemPosition()));
 
+            // 检查与已有事件的时间冲突，有冲突时先让用户确认
+            List<Event> conflicts = EventRepository.getInstance(requireActivity()).findConflicts(event);
+            if (!conflicts.isEmpty()) {
+                showConflictDialog(event, conflicts);
+                return;
+            }
+
+            commitEvent(event);
+
+        } catch (DateTimeParseException e) {
+            // 处理时间格式解析异常，显示提示信息
+            Toast.makeText(getContext(), "时间格式不正确，请使用HH:mm格式（如09:30）", Toast.LENGTH_SHORT).show();
+        } catch (Exception e) {
+            // 处理其他异常，打印错误日志并显示提示信息
+            Log.e("EventEditor", "保存事件时出错", e);
+            Toast.makeText(getContext(), "保存事件时出错", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    /**
+     * 根据重复方式下拉框的选项创建重复规则
+     *
+     * @param position 选项位置
+     * @return 重复规则，选择"不重复"时返回 null
+     */
+    private static RecurrenceRule repeatRuleForSelection(int position) {
+        switch (position) {
+            case 1:
+                return RecurrenceRule.of(RecurrenceRule.Frequency.DAILY);
+            case 2:
+                return RecurrenceRule.of(RecurrenceRule.Frequency.WEEKDAYS);
+            case 3:
+                return RecurrenceRule.of(RecurrenceRule.Frequency.WEEKLY);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 显示时间冲突确认对话框，列出冲突的事件，由用户决定是否仍然添加
+     *
+     * @param event     要添加的事件
+     * @param conflicts 与之时间重叠的已有事件
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void showConflictDialog(Event event, List<Event> conflicts) {
+        StringBuilder message = new StringBuilder("该时间段与以下日程冲突：\n");
+        for (Event conflict : conflicts) {
+            message.append("\n").append(conflict);
+        }
+
+        new AlertDialog.Builder(requireContext())
+                .setTitle("时间冲突")
+                .setMessage(message.toString())
+                .setPositiveButton("仍然添加", (dialog, which) -> commitEvent(event))
+                .setNegativeButton("取消", null)
+                .show();
+    }
+
+    /**
+     * 核心函数：将事件提交到日历并返回来源界面
+     *
+     * @param event 要保存的事件
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void commitEvent(Event event) {
+        try {
             // 保存事件到主活动
             if (getActivity() instanceof MainActivity) {
                 ((MainActivity) getActivity()).addEventToCalendar(event);
@@ -144,14 +257,10 @@ public class EventEditorFragment extends Fragment {
             // 显示成功消息
             Toast.makeText(getContext(), "事件已添加", Toast.LENGTH_SHORT).show();
 
-            // 调试日志：获取保存的事件JSON字符串并打印日志
-            SharedPreferences prefs = requireActivity().getSharedPreferences("events_prefs", Context.MODE_PRIVATE);
-            String eventsJson = prefs.getString(currentDate.toString(), "");
-            Log.d("EventCheck", "保存的事件: " + eventsJson);
+            // 调试日志：获取保存的事件并打印日志
+            List<Event> savedEvents = EventRepository.getInstance(requireActivity()).getEventsForDate(currentDate);
+            Log.d("EventCheck", "保存的事件: " + savedEvents);
 
-        } catch (DateTimeParseException e) {
-            // 处理时间格式解析异常，显示提示信息
-            Toast.makeText(getContext(), "时间格式不正确，请使用HH:mm格式（如09:30）", Toast.LENGTH_SHORT).show();
         } catch (Exception e) {
             // 处理其他异常，打印错误日志并显示提示信息
             Log.e("EventEditor", "保存事件时出错", e);
@@ -0,0 +1,118 @@
+/**
+ * EventIds 类生成按时间排序的紧凑事件 ID。
+ * 每个 ID 是一个 64 位整数：高 42 位为自 2020-01-01 起的毫秒数，中间 10 位为本进程的节点号，
+ * 低 12 位为同一毫秒内的序号，编码为 13 个字符的 Crockford Base32 字符串。
+ * 定长编码使字符串顺序与生成时间一致；生成时只需一次加锁和一次取时间，不再调用 SecureRandom。
+ * 旧版本生成的 UUID 仍然是合法的事件 ID，所有存储和索引都只把 ID 当作不透明的字符串。
+ */
+public final class EventIds {
+
+    // 时间戳的起点：2020-01-01T00:00:00Z
+    private static final long EPOCH_MILLIS = 1577836800000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int SEQUENCE_MASK = (1 << SEQUENCE_BITS) - 1;
+    // 编码后的长度：64 位需要 13 个 5 位字符
+    static final int LENGTH = 13;
+    private static final char[] ALPHABET = "0123456789abcdefghjkmnpqrstvwxyz".toCharArray();
+
+    // 本进程的节点号，启动时随机选取一次，使多台设备同一毫秒生成的 ID 不会重复
+    private static final int NODE = new SecureRandom().nextInt(1 << NODE_BITS);
+
+    // 上一次生成 ID 的时间戳
+    private static long lastMillis = -1;
+    // 同一毫秒内的序号
+    private static int sequence = 0;
+
+    private EventIds() {
+    }
+
+    /**
+     * 核心函数：生成一个新的事件 ID。
+     * 系统时钟回拨时继续使用上一次的时间戳，同一毫秒内的序号用尽时等待下一毫秒，保证 ID 单调递增。
+     *
+     * @return 13 个字符的 ID
+     */
+    public static String next() {
+        long value;
+        synchronized (EventIds.class) {
+            long millis = Math.max(System.currentTimeMillis() - EPOCH_MILLIS, lastMillis);
+            if (millis == lastMillis) {
+                sequence = (sequence + 1) & SEQUENCE_MASK;
+                if (sequence == 0) {
+                    while (millis <= lastMillis) {
+                        millis = System.currentTimeMillis() - EPOCH_MILLIS;
+                    }
+                }
+            } else {
+                sequence = 0;
+            }
+            lastMillis = millis;
+            value = (millis << (NODE_BITS + SEQUENCE_BITS)) | ((long) NODE << SEQUENCE_BITS) | sequence;
+        }
+        return encode(value);
+    }
+
+    /**
+     * 判断字符串是否为本类生成的紧凑 ID（而不是旧版本的 UUID 等其他格式）。
+     *
+     * @param id 事件 ID
+     * @return 是紧凑 ID 时返回 true
+     */
+    public static boolean isCompact(String id) {
+        if (id == null || id.length() != LENGTH || indexOf(id.charAt(0)) >= 16) {
+            return false;
+        }
+        for (int i = 0; i < LENGTH; i++) {
+            if (indexOf(id.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 获取紧凑 ID 的生成时间。
+     *
+     * @param id 紧凑 ID
+     * @return 自 1970-01-01 起的毫秒数，不是紧凑 ID 时返回 -1
+     */
+    public static long timestampOf(String id) {
+        if (!isCompact(id)) {
+            return -1;
+        }
+        return (decode(id) >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    /**
+     * 将 64 位整数编码为定长字符串，最高位字符只使用 4 位。
+     */
+    static String encode(long value) {
+        char[] chars = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    static long decode(String id) {
+        long value = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            value = (value << 5) | indexOf(id.charAt(i));
+        }
+        return value;
+    }
+
+    private static int indexOf(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        for (int i = 10; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,565 @@
+/**
+ * EventLog 类是事件存储的追加式二进制预写日志。
+ * 每一次添加或删除都只在文件末尾追加记录，写入代价与历史数据量无关；
+ * 启动时按顺序重放所有记录即可还原出当前的事件集合。
+ * 追加的记录先累积在内存中，commit() 时作为一帧写入文件并 fsync 一次：
+ * 每帧带有长度和 CRC32 校验和，重放时校验失败或不完整的帧整体丢弃，
+ * 因此同一帧中的多条记录要么全部生效，要么全部不生效。
+ * 日志可以被压缩为 gzip 快照（原文件名加 .gz），之后追加的记录仍写入未压缩的日志文件，
+ * 重放时先读快照再读日志。
+ */
+public class EventLog {
+    private static final String TAG = "EventLog";
+
+    // 日志文件头魔数，用于识别文件格式
+    private static final int MAGIC = 0x46464556; // "FFEV"
+    // 日志格式版本：1 为不分帧的旧格式，2 为带校验和的分帧格式
+    private static final int VERSION = 2;
+    private static final int VERSION_UNFRAMED = 1;
+    // 单帧的最大长度，超过时视为损坏
+    private static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    // 记录类型：添加事件
+    static final byte OP_ADD = 1;
+    // 记录类型：删除事件
+    static final byte OP_DELETE = 2;
+    // 记录类型：添加重复系列（事件字段后跟重复规则）
+    static final byte OP_ADD_SERIES = 3;
+    // 记录类型：为重复系列添加例外日期
+    static final byte OP_EXCEPTION = 4;
+
+    // 字段为空时使用的占位值
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int NO_TIME = -1;
+
+    // 日志文件
+    private final File file;
+    // gzip 压缩的快照文件，日志被压缩后才存在
+    private final File snapshot;
+    // 追加写入的文件流，首次提交时打开
+    private FileOutputStream fileOut;
+    // 当前帧中尚未提交的记录
+    private final ByteArrayOutputStream frameBuffer = new ByteArrayOutputStream();
+    // 正在编码的单条记录，编码成功后才并入当前帧，编码失败不会在帧中留下半条记录
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+    private final DataOutputStream record = new DataOutputStream(recordBuffer);
+    // 重放时发现日志为旧格式，需要在追加前重写
+    private boolean needsUpgrade = false;
+
+    /**
+     * 日志重放回调接口，按写入顺序接收每一条记录。
+     */
+    public interface Visitor {
+        // 重放到一条添加记录
+        void onAdd(Event event);
+
+        // 重放到一条删除记录
+        void onDelete(String id, LocalDate date);
+
+        // 重放到一条重复系列例外记录
+        void onException(String seriesId, int epochDay);
+    }
+
+    /**
+     * 构造函数。
+     *
+     * @param file 日志文件
+     */
+    public EventLog(File file) {
+        this.file = file;
+        this.snapshot = new File(file.getPath() + ".gz");
+    }
+
+    /**
+     * 判断日志文件是否已经存在。
+     *
+     * @return 日志文件存在时返回 true
+     */
+    public boolean exists() {
+        return file.exists() || snapshot.exists();
+    }
+
+    /**
+     * 判断日志中是否有尚未压缩进快照的记录。
+     *
+     * @return 未压缩的日志文件不为空时返回 true
+     */
+    public boolean hasUncompressedRecords() {
+        return file.length() > 8;
+    }
+
+    /**
+     * 判断重放的日志是否为旧的不分帧格式。为 true 时必须先调用 rewrite() 再追加记录。
+     *
+     * @return 需要升级时返回 true
+     */
+    public boolean needsUpgrade() {
+        return needsUpgrade;
+    }
+
+    /**
+     * 核心函数：按顺序重放日志中的所有记录。
+     * 遇到不完整或校验和不匹配的帧时停止，并将其及之后的内容截断，
+     * 保证进程在写入中途被杀时只会丢失最后一个未完成的批次，且后续追加的帧可以被正确读取。
+     * 与追加、提交和重写持有同一把锁，截断时不会切掉写线程正在写入的帧。
+     *
+     * @param visitor 接收记录的回调
+     * @throws IOException 读取日志失败
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public synchronized void replay(Visitor visitor) throws IOException {
+        if (snapshot.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new GZIPInputStream(new FileInputStream(snapshot))))) {
+                if (readHeader(in, snapshot) != VERSION) {
+                    throw new IOException("不支持的快照版本: " + snapshot);
+                }
+                replayFrames(in, visitor);
+            }
+        }
+        if (!file.exists()) {
+            return;
+        }
+
+        long validLength;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int version = readHeader(in, file);
+            if (version == VERSION) {
+                validLength = replayFrames(in, visitor);
+            } else if (version == VERSION_UNFRAMED) {
+                validLength = replayUnframed(in, visitor);
+                needsUpgrade = true;
+            } else {
+                throw new IOException("不支持的日志版本: " + version);
+            }
+        }
+
+        // 截断末尾不完整的记录
+        if (validLength < file.length()) {
+            Log.w(TAG, "截断日志末尾不完整的记录: " + (file.length() - validLength) + " 字节");
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+    }
+
+    /**
+     * 读取并校验文件头，返回格式版本。
+     */
+    private static int readHeader(DataInputStream in, File source) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("无法识别的日志文件: " + source);
+        }
+        return in.readInt();
+    }
+
+    /**
+     * 逐帧校验并重放，返回最后一个完整帧的结束位置。
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private long replayFrames(DataInputStream in, Visitor visitor) throws IOException {
+        long validLength = 8;
+        CRC32 crc = new CRC32();
+        while (true) {
+            byte[] payload;
+            try {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length < 0 || length > MAX_FRAME_LENGTH) {
+                    Log.e(TAG, "帧长度无效: " + length + "，位置: " + validLength);
+                    break;
+                }
+                payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    Log.e(TAG, "帧校验和不匹配，位置: " + validLength);
+                    break;
+                }
+            } catch (EOFException e) {
+                break;
+            }
+
+            // 整帧校验通过后才应用其中的记录
+            DataInputStream frameIn = new DataInputStream(new ByteArrayInputStream(payload));
+            CountingReader reader = new CountingReader(frameIn, 0);
+            while (reader.position() < payload.length) {
+                byte op = frameIn.readByte();
+                reader.advance(1);
+                if (!readRecord(op, reader, visitor)) {
+                    throw new IOException("未知的记录类型: " + op + "，位置: " + validLength);
+                }
+            }
+            validLength += 8 + payload.length;
+        }
+        return validLength;
+    }
+
+    /**
+     * 重放旧版不分帧的日志，返回最后一条完整记录的结束位置。
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private long replayUnframed(DataInputStream in, Visitor visitor) throws IOException {
+        long validLength = 8;
+        CountingReader reader = new CountingReader(in, validLength);
+        while (true) {
+            try {
+                byte op = in.readByte();
+                reader.advance(1);
+                if (!readRecord(op, reader, visitor)) {
+                    Log.e(TAG, "未知的记录类型: " + op + "，位置: " + validLength);
+                    break;
+                }
+                validLength = reader.position();
+            } catch (EOFException e) {
+                break;
+            }
+        }
+        return validLength;
+    }
+
+    /**
+     * 读取一条记录的内容并交给回调。
+     *
+     * @return 记录类型无法识别时返回 false
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private static boolean readRecord(byte op, CountingReader reader, Visitor visitor) throws IOException {
+        if (op == OP_ADD) {
+            visitor.onAdd(reader.readEvent());
+        } else if (op == OP_ADD_SERIES) {
+            Event master = reader.readEvent();
+            master.setRecurrence(reader.readRule());
+            visitor.onAdd(master);
+        } else if (op == OP_EXCEPTION) {
+            String seriesId = reader.readUTF();
+            visitor.onException(seriesId, reader.readEpochDay());
+        } else if (op == OP_DELETE) {
+            String id = reader.readUTF();
+            LocalDate date = reader.readDate();
+            visitor.onDelete(id, date);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 在当前帧中追加一条添加事件的记录，重复系列的主事件会连同重复规则一起写入。
+     *
+     * @param event 要添加的事件
+     * @throws IOException 写入失败
+     */
+    public synchronized void appendAdd(Event event) throws IOException {
+        recordBuffer.reset();
+        writeAddRecord(record, event);
+        stageRecord();
+    }
+
+    /**
+     * 在当前帧中追加一条重复系列例外记录，表示系列在该日期的实例被删除。
+     *
+     * @param seriesId 系列 ID
+     * @param epochDay 被删除实例的日期
+     * @throws IOException 写入失败
+     */
+    public synchronized void appendException(String seriesId, int epochDay) throws IOException {
+        recordBuffer.reset();
+        record.writeByte(OP_EXCEPTION);
+        record.writeUTF(seriesId);
+        writeDate(record, epochDay);
+        stageRecord();
+    }
+
+    /**
+     * 在当前帧中追加一条删除事件的记录。
+     *
+     * @param event 要删除的事件
+     * @throws IOException 写入失败
+     */
+    public synchronized void appendDelete(Event event) throws IOException {
+        recordBuffer.reset();
+        record.writeByte(OP_DELETE);
+        record.writeUTF(event.getId());
+        writeDate(record, event.getEpochDay());
+        stageRecord();
+    }
+
+    /**
+     * 将编码完成的记录并入当前帧。
+     */
+    private void stageRecord() throws IOException {
+        recordBuffer.writeTo(frameBuffer);
+    }
+
+    /**
+     * 核心函数：将当前帧中的所有记录作为一帧写入文件并 fsync。
+     * 多次追加只在这里同步一次磁盘，实现组提交；这一帧中的记录在重放时整体生效。
+     * 写入失败时当前帧被丢弃，调用方需要将这些记录视为未保存。
+     *
+     * @throws IOException 写入失败
+     */
+    public synchronized void commit() throws IOException {
+        if (frameBuffer.size() == 0) {
+            return;
+        }
+        try {
+            byte[] payload = frameBuffer.toByteArray();
+            writeFrame(openForAppend(), payload);
+            fileOut.getFD().sync();
+        } catch (IOException e) {
+            // 写了一半的帧会在下次重放时被截断，这里关闭流以便重新打开时从文件末尾继续
+            close();
+            throw e;
+        } finally {
+            frameBuffer.reset();
+        }
+    }
+
+    /**
+     * 核心函数：压缩日志。
+     * 将当前仍然有效的事件重新写成一个只包含添加记录的新文件，再原子地替换旧日志，
+     * 以清除已删除事件留下的无效记录，旧格式的日志也借此升级为分帧格式。
+     * 已经压缩过的日志会重新压缩为快照，保证任何时刻被杀都不会让已删除的事件从旧快照中复活。
+     *
+     * @param events 当前所有有效事件
+     * @throws IOException 写入失败
+     */
+    public synchronized void rewrite(Collection<Event> events) throws IOException {
+        if (snapshot.exists()) {
+            compress(events);
+            return;
+        }
+        close();
+        writeSnapshotTo(file, events, false);
+        needsUpgrade = false;
+    }
+
+    /**
+     * 将当前仍然有效的事件写成 gzip 压缩的快照，并清空未压缩的日志。
+     * 用于很少修改的冷数据，快照只在重放时整体解压读取。
+     *
+     * @param events 当前所有有效事件
+     * @throws IOException 写入失败
+     */
+    public synchronized void compress(Collection<Event> events) throws IOException {
+        close();
+        writeSnapshotTo(snapshot, events, true);
+        // 删除前被杀时重放会在快照之后再应用一遍旧日志，结果相同
+        if (file.exists() && !file.delete()) {
+            throw new IOException("删除日志文件失败: " + file);
+        }
+        needsUpgrade = false;
+    }
+
+    /**
+     * 将事件写成只有一帧添加记录的完整文件，先写临时文件并 fsync，再原子地替换目标文件。
+     */
+    private static void writeSnapshotTo(File target, Collection<Event> events, boolean gzip) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream records = new DataOutputStream(payload);
+        for (Event event : events) {
+            writeAddRecord(records, event);
+        }
+
+        File tmp = new File(target.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            OutputStream stream = gzip ? new GZIPOutputStream(fos) : fos;
+            stream.write(header());
+            if (payload.size() > 0) {
+                writeFrame(stream, payload.toByteArray());
+            }
+            if (gzip) {
+                ((GZIPOutputStream) stream).finish();
+            }
+            fos.getFD().sync();
+        }
+
+        if (!tmp.renameTo(target)) {
+            throw new IOException("替换日志文件失败: " + target);
+        }
+    }
+
+    /**
+     * 关闭追加写入流。
+     */
+    public synchronized void close() {
+        if (fileOut != null) {
+            try {
+                fileOut.close();
+            } catch (IOException e) {
+                Log.e(TAG, "关闭日志失败", e);
+            }
+            fileOut = null;
+        }
+    }
+
+    /**
+     * 打开追加写入流，新文件会先写入文件头。
+     */
+    private FileOutputStream openForAppend() throws IOException {
+        if (fileOut == null) {
+            boolean isNew = !file.exists() || file.length() == 0;
+            fileOut = new FileOutputStream(file, true);
+            if (isNew) {
+                fileOut.write(header());
+            }
+        }
+        return fileOut;
+    }
+
+    private static byte[] header() {
+        return ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION).array();
+    }
+
+    /**
+     * 以 [长度][CRC32][内容] 的形式写入一帧，长度和校验和与内容一起一次写入。
+     */
+    private static void writeFrame(OutputStream stream, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + payload.length);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        stream.write(buffer.array());
+    }
+
+    /**
+     * 写入一条添加记录，根据是否有重复规则选择记录类型。
+     */
+    private static void writeAddRecord(DataOutputStream stream, Event event) throws IOException {
+        RecurrenceRule rule = event.getRecurrence();
+        stream.writeByte(rule == null ? OP_ADD : OP_ADD_SERIES);
+        writeEvent(stream, event);
+        if (rule != null) {
+            writeRule(stream, rule);
+        }
+    }
+
+    /**
+     * 将重复规则写入流中。
+     */
+    private static void writeRule(DataOutputStream stream, RecurrenceRule rule) throws IOException {
+        stream.writeByte(rule.getFrequency().ordinal());
+        stream.writeInt(rule.getInterval());
+        stream.writeInt(rule.getUntilEpochDay());
+        stream.writeInt(rule.getCount());
+        int[] exceptions = rule.getExceptions();
+        stream.writeInt(exceptions.length);
+        for (int exception : exceptions) {
+            stream.writeInt(exception);
+        }
+    }
+
+    /**
+     * 将事件的各个字段写入流中。
+     */
+    private static void writeEvent(DataOutputStream stream, Event event) throws IOException {
+        stream.writeUTF(event.getId());
+        writeDate(stream, event.getEpochDay());
+        writeTime(stream, event.getStartMinute());
+        writeTime(stream, event.getEndMinute());
+        String description = event.getDescription();
+        stream.writeBoolean(description != null);
+        if (description != null) {
+            stream.writeUTF(description);
+        }
+    }
+
+    private static void writeDate(DataOutputStream stream, int epochDay) throws IOException {
+        stream.writeLong(epochDay == Event.NO_DATE ? NO_DATE : epochDay);
+    }
+
+    private static void writeTime(DataOutputStream stream, int minute) throws IOException {
+        // 日志中以一天中的秒数存储时间
+        stream.writeInt(minute == Event.NO_TIME ? NO_TIME : minute * 60);
+    }
+
+    /**
+     * 带位置计数的读取辅助类，用于在重放时记录最后一条完整记录的结束位置。
+     */
+    private static class CountingReader {
+        private final DataInputStream in;
+        private long position;
+
+        CountingReader(DataInputStream in, long position) {
+            this.in = in;
+            this.position = position;
+        }
+
+        long position() {
+            return position;
+        }
+
+        void advance(int bytes) {
+            position += bytes;
+        }
+
+        String readUTF() throws IOException {
+            String value = in.readUTF();
+            // writeUTF 使用 2 字节长度前缀加修改版 UTF-8 编码
+            position += 2 + modifiedUtf8Length(value);
+            return value;
+        }
+
+        @RequiresApi(api = Build.VERSION_CODES.O)
+        LocalDate readDate() throws IOException {
+            int epochDay = readEpochDay();
+            return epochDay == Event.NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+        }
+
+        int readEpochDay() throws IOException {
+            long epochDay = in.readLong();
+            position += 8;
+            return epochDay == NO_DATE ? Event.NO_DATE : (int) epochDay;
+        }
+
+        int readMinute() throws IOException {
+            int secondOfDay = in.readInt();
+            position += 4;
+            return secondOfDay == NO_TIME ? Event.NO_TIME : secondOfDay / 60;
+        }
+
+        RecurrenceRule readRule() throws IOException {
+            int frequency = in.readByte();
+            int interval = in.readInt();
+            int untilEpochDay = in.readInt();
+            int count = in.readInt();
+            int exceptionCount = in.readInt();
+            position += 17;
+            int[] exceptions = new int[exceptionCount];
+            for (int i = 0; i < exceptionCount; i++) {
+                exceptions[i] = in.readInt();
+            }
+            position += 4L * exceptionCount;
+            return RecurrenceRule.restore(RecurrenceRule.Frequency.values()[frequency],
+                    interval, untilEpochDay, count, exceptions);
+        }
+
+        Event readEvent() throws IOException {
+            String id = readUTF();
+            int epochDay = readEpochDay();
+            int startMinute = readMinute();
+            int endMinute = readMinute();
+            boolean hasDescription = in.readBoolean();
+            position += 1;
+            String description = hasDescription ? readUTF() : null;
+            return new Event(id, epochDay, startMinute, endMinute, description);
+        }
+
+        private static int modifiedUtf8Length(String value) {
+            int length = 0;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c >= 0x0001 && c <= 0x007F) {
+                    length += 1;
+                } else if (c > 0x07FF) {
+                    length += 3;
+                } else {
+                    length += 2;
+                }
+            }
+            return length;
+        }
+    }
+}
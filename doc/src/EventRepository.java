@@ -0,0 +1,812 @@
+/**
+ * EventRepository 类是所有事件读写的唯一入口。
+ * 事件持久化在按月分片的追加式 EventLog 中，内存中按日期和 ID 建立索引，
+ * 添加和删除都只需要在对应月份的分片中追加一条日志记录，而不再重写整个 events_prefs 文件。
+ * 启动时只加载重复系列所在的公共分片，每个月份的分片在第一次被查询时才加载。
+ * 内存索引在调用线程上立即更新，日志记录由 EventWriteQueue 在唯一的写线程上批量写入。
+ * 仓库只索引调用方传入事件的副本，查询也只返回副本：调用方修改自己持有的事件对象
+ * 不会绕过日志改变仓库中的日期索引、区间索引和全文索引。
+ */
+public class EventRepository {
+    private static final String TAG = "EventRepository";
+
+    // 保存存储格式版本和迁移进度的 SharedPreferences 名称
+    private static final String META_PREFS = "events_meta";
+    // 存储格式版本的键
+    private static final String KEY_SCHEMA_VERSION = "schema_version";
+    // 存储格式版本：1 为单一日志，2 为按月分片且只包含有效事件
+    private static final int SCHEMA_VERSION = 2;
+    // 分片之前使用的单一日志文件名，仅用于首次启动时迁移
+    private static final String LEGACY_LOG_FILE_NAME = "events.log";
+    // 触发日志压缩的最少无效记录数
+    private static final int COMPACT_MIN_DEAD_RECORDS = 256;
+    // 重放失败的分片至少间隔多久才重新重放（毫秒）
+    private static final long READ_ONLY_RETRY_MS = 60_000;
+
+    // 单例实例
+    private static EventRepository instance;
+
+    // 按月分片的日志
+    private final EventShards shards;
+    // 日志的后写队列，所有写入都经由它在写线程上完成
+    private final EventWriteQueue writeQueue;
+    // 已经加载到内存的月份，只包含完整重放成功的分片
+    private final Set<YearMonth> loadedMonths = new HashSet<>();
+    // 重放失败的月份及其失败时刻（SystemClock.elapsedRealtime），内存中只有部分事件，
+    // 分片在重放成功之前既不重写也不追加，该月份的添加和删除都会被拒绝
+    private final Map<YearMonth, Long> readOnlyMonths = new HashMap<>();
+    // 按日期有序索引的事件列表，支持按日期范围查询
+    private final TreeMap<LocalDate, List<Event>> eventsByDate = new TreeMap<>();
+    // 按 ID 索引的事件，包括重复系列的主事件
+    private final Map<String, Event> eventsById = new HashMap<>();
+    // 普通事件在其日期列表中的下标，删除时据此 O(1) 定位，不再逐个比较 ID
+    private final Map<String, Integer> datePositions = new HashMap<>();
+    // 重复系列的主事件，实例在查询时按需展开，不放入日期索引
+    private final Map<String, Event> seriesById = new HashMap<>();
+    // 按日期缓存的区间索引，首次查询冲突时构建，日期内事件变化时失效
+    private final Map<LocalDate, DayIntervalIndex> intervalIndexes = new HashMap<>();
+    // 事件描述的全文索引
+    private final EventSearchIndex searchIndex = new EventSearchIndex();
+    // 每个分片中已失效的记录数（被删除的事件及其删除记录），公共分片的键为 null
+    private final Map<YearMonth, Integer> deadRecords = new HashMap<>();
+    // 事件变更监听器
+    private final List<OnEventsChangedListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 事件变更监听器接口，在某个日期的事件被添加或删除后调用。
+     */
+    public interface OnEventsChangedListener {
+        // 指定日期的事件发生了变化；date 为 null 表示重复系列变化，所有日期都可能受影响
+        void onEventsChanged(LocalDate date);
+    }
+
+    /**
+     * 获取 EventRepository 单例，首次调用时会加载日志或迁移旧数据。
+     *
+     * @param context 上下文
+     * @return EventRepository 单例
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public static synchronized EventRepository getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new EventRepository(new EventShards(new File(appContext.getFilesDir(), EventShards.DIRECTORY_NAME)));
+            instance.load(appContext);
+        }
+        return instance;
+    }
+
+    /**
+     * 构造函数。
+     *
+     * @param shards 按月分片的事件日志
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    EventRepository(EventShards shards) {
+        this.shards = shards;
+        this.writeQueue = new EventWriteQueue(shards);
+    }
+
+    /**
+     * 注册事件变更监听器。
+     *
+     * @param listener 监听器
+     */
+    public void addOnEventsChangedListener(OnEventsChangedListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 取消注册事件变更监听器。
+     *
+     * @param listener 监听器
+     */
+    public void removeOnEventsChangedListener(OnEventsChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 核心函数：加载事件数据。
+     * 分片存储已存在时只重放公共分片，各月份在第一次被查询时再加载；
+     * 分片之前的单一日志会被同步拆分为分片；旧的 events_prefs 则交给后台迁移器逐批迁移。
+     * 完成后记录当前的存储格式版本。
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private synchronized void load(Context context) {
+        SharedPreferences meta = context.getSharedPreferences(META_PREFS, Context.MODE_PRIVATE);
+        try {
+            if (shards.exists()) {
+                replayShard(shards.commonLog(), null);
+                Log.d(TAG, "从公共分片加载了 " + seriesById.size() + " 个重复系列");
+            } else {
+                File legacyLog = new File(context.getFilesDir(), LEGACY_LOG_FILE_NAME);
+                if (legacyLog.exists()) {
+                    migrateLegacyLog(legacyLog);
+                } else {
+                    // 先写入空的公共分片作为初始化标记，旧数据由后台迁移器写入
+                    shards.commonLog().rewrite(new ArrayList<>());
+                    LegacyEventsMigrator.schedule(context, meta);
+                }
+            }
+            if (meta.getInt(KEY_SCHEMA_VERSION, 0) != SCHEMA_VERSION) {
+                meta.edit().putInt(KEY_SCHEMA_VERSION, SCHEMA_VERSION).commit();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "加载事件日志失败", e);
+            return;
+        }
+        LegacyEventsMigrator.resumeIfNeeded(context, this, meta);
+    }
+
+    /**
+     * 重放一个分片，month 为 null 表示公共分片。旧格式的分片会被重写为新格式。
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void replayShard(EventLog log, YearMonth month) throws IOException {
+        log.replay(new EventLog.Visitor() {
+            @Override
+            public void onAdd(Event event) {
+                indexEvent(event);
+            }
+
+            @Override
+            public void onDelete(String id, LocalDate date) {
+                addDeadRecords(month, unindexEvent(id) != null ? 2 : 1);
+            }
+
+            @Override
+            public void onException(String seriesId, int epochDay) {
+                Event master = seriesById.get(seriesId);
+                if (master != null) {
+                    master.setRecurrence(master.getRecurrence().withException(epochDay));
+                }
+                // 压缩时例外日期会并入系列记录
+                addDeadRecords(month, 1);
+            }
+        });
+        if (log.needsUpgrade()) {
+            // 旧格式的日志不能继续追加分帧记录，先整体重写为新格式
+            log.rewrite(eventsOfShard(month));
+            deadRecords.remove(month);
+        }
+    }
+
+    /**
+     * 确保指定月份的分片已加载到内存。冷月份如果还有未压缩的记录，加载后会在写线程上压缩。
+     * 重放失败时该月份不计为已加载，并被标记为只读：不会用内存中的部分事件重写分片而丢失未能读出的记录，
+     * 也不会向其追加记录，因此重新重放时不会与写线程的追加同时进行（重放与提交还由日志自身的锁互斥）。
+     * 间隔 READ_ONLY_RETRY_MS 之后的查询会重新重放。
+     *
+     * @return 月份已完整加载、可以写入时返回 true
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private boolean ensureMonthLoaded(YearMonth month) {
+        if (loadedMonths.contains(month)) {
+            return true;
+        }
+        Long failedAt = readOnlyMonths.get(month);
+        if (failedAt != null && SystemClock.elapsedRealtime() - failedAt < READ_ONLY_RETRY_MS) {
+            return false;
+        }
+        EventLog log = shards.monthLog(month);
+        if (!log.exists()) {
+            loadedMonths.add(month);
+            readOnlyMonths.remove(month);
+            return true;
+        }
+        // 重新重放时同一事件会覆盖之前的索引，无效记录数则从头统计
+        deadRecords.remove(month);
+        try {
+            replayShard(log, month);
+        } catch (IOException e) {
+            Log.e(TAG, "加载月份分片失败，分片在重放成功前只读: " + month, e);
+            readOnlyMonths.put(month, SystemClock.elapsedRealtime());
+            return false;
+        }
+        loadedMonths.add(month);
+        readOnlyMonths.remove(month);
+        if (EventShards.isCold(month) && log.hasUncompressedRecords()) {
+            writeQueue.rewrite(log, eventsOfShard(month), true);
+            deadRecords.remove(month);
+        }
+        return true;
+    }
+
+    /**
+     * 确保 [from, to] 所跨的所有月份都已加载。
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void ensureLoaded(LocalDate from, LocalDate to) {
+        YearMonth last = YearMonth.from(to);
+        for (YearMonth month = YearMonth.from(from); !month.isAfter(last); month = month.plusMonths(1)) {
+            ensureMonthLoaded(month);
+        }
+    }
+
+    /**
+     * 确保事件所属的月份分片已加载，公共分片在启动时已经加载。
+     * 分片只读时内存中的事件不完整，既无法判断重复，也不能追加记录，调用方必须拒绝这次写入。
+     *
+     * @return 分片已完整加载、可以写入时返回 true
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private boolean ensureLoaded(Event event) {
+        YearMonth month = EventShards.monthOf(event);
+        if (month == null || ensureMonthLoaded(month)) {
+            return true;
+        }
+        Log.w(TAG, "月份分片只读，拒绝写入: " + event.getId());
+        return false;
+    }
+
+    /**
+     * 从分片之前的单一日志迁移：重放全部记录后按月写成分片，再删除旧日志。
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void migrateLegacyLog(File legacyLog) throws IOException {
+        EventLog log = new EventLog(legacyLog);
+        log.replay(new EventLog.Visitor() {
+            @Override
+            public void onAdd(Event event) {
+                indexEvent(event);
+            }
+
+            @Override
+            public void onDelete(String id, LocalDate date) {
+                unindexEvent(id);
+            }
+
+            @Override
+            public void onException(String seriesId, int epochDay) {
+                Event master = seriesById.get(seriesId);
+                if (master != null) {
+                    master.setRecurrence(master.getRecurrence().withException(epochDay));
+                }
+            }
+        });
+        writeAllShards();
+        log.close();
+        if (!legacyLog.delete()) {
+            Log.w(TAG, "删除旧日志失败: " + legacyLog);
+        }
+        Log.d(TAG, "已从单一日志迁移 " + eventsById.size() + " 个事件");
+    }
+
+    /**
+     * 将内存中的全部事件按月写成分片，冷月份直接写成压缩快照。公共分片最后写入，作为迁移完成的标记。
+     * 无效事件不会写入分片。
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void writeAllShards() throws IOException {
+        Map<YearMonth, List<Event>> byMonth = new TreeMap<>();
+        List<Event> common = new ArrayList<>();
+        int invalid = 0;
+        for (Iterator<Event> iterator = eventsById.values().iterator(); iterator.hasNext();) {
+            Event event = iterator.next();
+            if (!event.isValid()) {
+                iterator.remove();
+                invalid++;
+                continue;
+            }
+            YearMonth month = EventShards.monthOf(event);
+            if (month == null) {
+                common.add(event);
+                continue;
+            }
+            List<Event> events = byMonth.get(month);
+            if (events == null) {
+                events = new ArrayList<>();
+                byMonth.put(month, events);
+            }
+            events.add(event);
+        }
+        for (Map.Entry<YearMonth, List<Event>> entry : byMonth.entrySet()) {
+            EventLog log = shards.monthLog(entry.getKey());
+            if (EventShards.isCold(entry.getKey())) {
+                log.compress(entry.getValue());
+            } else {
+                log.rewrite(entry.getValue());
+            }
+        }
+        shards.commonLog().rewrite(common);
+        // 迁移时所有事件都已在内存中
+        loadedMonths.addAll(byMonth.keySet());
+        if (invalid > 0) {
+            Log.w(TAG, "迁移时跳过了 " + invalid + " 个缺少日期或时间的无效事件");
+        }
+    }
+
+    /**
+     * 核心函数：添加一个事件并持久化。
+     * 即使与已有事件时间冲突也会添加，冲突的事件通过返回值报告给调用方。
+     *
+     * @param event 要添加的事件
+     * @return 添加前与该事件时间重叠的已有事件，没有冲突时返回空列表
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public synchronized List<Event> addEvent(Event event) {
+        if (!event.isValid()) {
+            Log.w(TAG, "忽略缺少日期或时间的事件: " + event);
+            return new ArrayList<>();
+        }
+        if (!ensureLoaded(event)) {
+            return new ArrayList<>();
+        }
+        if (eventsById.containsKey(event.getId())) {
+            Log.w(TAG, "事件已存在，忽略重复添加: " + event.getId());
+            return new ArrayList<>();
+        }
+        List<Event> conflicts = findConflicts(event);
+        Event stored = event.copy();
+        indexEvent(stored);
+        writeQueue.add(stored);
+        notifyChanged(stored.getRecurrence() == null ? stored.getDate() : null);
+        return conflicts;
+    }
+
+    /**
+     * 核心函数：以原子批次添加一组事件。
+     * 同一月份的事件在该月分片中写入同一帧，进程在保存中途被杀时要么全部保存，要么全部丢失。
+     *
+     * @param events 要添加的事件
+     * @return 添加时与已有事件（包括本批中排在前面的事件）时间重叠的事件
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public synchronized List<Event> addEvents(List<Event> events) {
+        List<Event> conflicting = new ArrayList<>();
+        addBatch(events, conflicting);
+        return conflicting;
+    }
+
+    /**
+     * 与 addEvents 相同地以原子批次添加一组事件，同时返回实际添加的事件数，
+     * 供需要向用户报告添加结果的调用方使用。
+     *
+     * @param events      要添加的事件
+     * @param conflicting 收集添加时与已有事件时间重叠的事件
+     * @return 实际添加的事件数，无效、已存在或所在月份分片只读的事件不计入
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public synchronized int addEvents(List<Event> events, List<Event> conflicting) {
+        return addBatch(events, conflicting);
+    }
+
+    /**
+     * 核心函数：导入一批事件，与 addEvents 相同地以原子批次写入，但不检测时间冲突，
+     * 用于导入大量外部日程。
+     *
+     * @param events 要导入的事件
+     * @return 实际添加的事件数，无效、已存在或所在月份分片只读的事件不计入
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public synchronized int importEvents(List<Event> events) {
+        return addBatch(events, null);
+    }
+
+    /**
+     * 添加一批事件并整批提交到写队列。
+     *
+     * @param events      要添加的事件
+     * @param conflicting 收集时间冲突的事件，为 null 时不检测冲突
+     * @return 实际添加的事件数
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private int addBatch(List<Event> events, List<Event> conflicting) {
+        List<Event> added = new ArrayList<>(events.size());
+        Set<LocalDate> changedDates = new HashSet<>();
+        boolean seriesChanged = false;
+        for (Event event : events) {
+            if (!event.isValid()) {
+                Log.w(TAG, "忽略缺少日期或时间的事件: " + event);
+                continue;
+            }
+            if (!ensureLoaded(event)) {
+                continue;
+            }
+            if (eventsById.containsKey(event.getId())) {
+                Log.w(TAG, "事件已存在，忽略重复添加: " + event.getId());
+                continue;
+            }
+            if (conflicting != null && !findConflicts(event).isEmpty()) {
+                conflicting.add(event);
+            }
+            Event stored = event.copy();
+            indexEvent(stored);
+            added.add(stored);
+            if (event.getRecurrence() != null) {
+                seriesChanged = true;
+            } else if (event.getDate() != null) {
+                changedDates.add(event.getDate());
+            }
+        }
+        writeQueue.addAll(added);
+
+        if (seriesChanged) {
+            notifyChanged(null);
+        } else {
+            for (LocalDate date : changedDates) {
+                notifyChanged(date);
+            }
+        }
+        return added.size();
+    }
+
+    /**
+     * 核心函数：删除一个事件并持久化。
+     *
+     * @param event 要删除的事件
+     * @return 事件存在并被删除时返回 true
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public synchronized boolean deleteEvent(Event event) {
+        if (event.getSeriesId() != null) {
+            return deleteOccurrence(event);
+        }
+        if (!ensureLoaded(event)) {
+            return false;
+        }
+        Event removed = unindexEvent(event.getId());
+        if (removed == null) {
+            return false;
+        }
+        writeQueue.delete(removed);
+        YearMonth month = EventShards.monthOf(removed);
+        addDeadRecords(month, 2);
+        compactIfNeeded(month);
+        notifyChanged(removed.getRecurrence() == null ? removed.getDate() : null);
+        return true;
+    }
+
+    /**
+     * 删除重复系列中的单个实例：为系列添加一个例外日期，而不影响其他实例。
+     *
+     * @param occurrence 要删除的实例
+     * @return 系列存在且该日期原本有实例时返回 true
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private boolean deleteOccurrence(Event occurrence) {
+        return excludeOccurrence(occurrence.getSeriesId(), occurrence.getEpochDay());
+    }
+
+    /**
+     * 为重复系列添加一个例外日期，用于导入时排除已作为独立事件导入的被修改实例。
+     *
+     * @param seriesId 系列 ID
+     * @param epochDay 要排除的实例日期（纪元日）
+     * @return 系列存在且该日期原本有实例时返回 true
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public synchronized boolean excludeOccurrence(String seriesId, int epochDay) {
+        Event master = seriesById.get(seriesId);
+        if (master == null) {
+            return false;
+        }
+        RecurrenceRule rule = master.getRecurrence();
+        if (!rule.occursOn(master.getEpochDay(), epochDay)) {
+            return false;
+        }
+        master.setRecurrence(rule.withException(epochDay));
+        writeQueue.exception(master, epochDay);
+        addDeadRecords(null, 1);
+        compactIfNeeded(null);
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        intervalIndexes.remove(date);
+        notifyChanged(date);
+        return true;
+    }
+
+    /**
+     * 获取一个在目前所有添加和删除都写入日志文件后完成的 Future，
+     * 调用方可以据此确认数据已经保存。
+     *
+     * @return Future，写入失败时以异常完成
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public CompletableFuture<Void> flush() {
+        return writeQueue.flush();
+    }
+
+    /**
+     * 获取指定日期的事件列表。
+     *
+     * @param date 指定的日期
+     * @return 该日期事件列表的副本，按开始时间排列，没有事件时返回空列表
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public synchronized List<Event> getEventsForDate(LocalDate date) {
+        ensureMonthLoaded(YearMonth.from(date));
+        List<Event> events = copyOf(eventsOn(date));
+        Collections.sort(events);
+        return events;
+    }
+
+    /**
+     * 核心函数：查询指定日期内与 [startMinute, endMinute) 时间重叠的事件。
+     * 使用按日期维护的区间索引，复杂度为 O(log n + k)。
+     *
+     * @param date        日期
+     * @param startMinute 开始时间在一天中的分钟数（包含）
+     * @param endMinute   结束时间在一天中的分钟数（不包含）
+     * @return 按开始时间排序的重叠事件
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public synchronized List<Event> findConflicts(LocalDate date, int startMinute, int endMinute) {
+        DayIntervalIndex index = intervalIndexes.get(date);
+        if (index == null) {
+            ensureMonthLoaded(YearMonth.from(date));
+            index = new DayIntervalIndex(eventsOn(date));
+            intervalIndexes.put(date, index);
+        }
+        return copyOf(index.findOverlapping(startMinute, endMinute));
+    }
+
+    /**
+     * 查询与指定事件时间重叠的其他已有事件。
+     *
+     * @param event 要检查的事件
+     * @return 与之重叠的其他事件，事件本身不计入
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public synchronized List<Event> findConflicts(Event event) {
+        if (!event.isValid()) {
+            return new ArrayList<>();
+        }
+        List<Event> conflicts = findConflicts(event.getDate(), event.getStartMinute(), event.getEndMinute());
+        conflicts.removeIf(other -> other.getId().equals(event.getId()));
+        return conflicts;
+    }
+
+    /**
+     * 核心函数：按日期范围查询事件。
+     * 在有序索引上只遍历一次 [from, to] 区间，不会访问区间以外的日期；
+     * 重复系列只在该区间内展开为实例，不会生成区间以外的实例。
+     *
+     * @param from 起始日期（包含）
+     * @param to   结束日期（包含）
+     * @return 按日期升序排列的日期到事件列表的映射副本，只包含有事件的日期，每天的事件按开始时间排列
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public synchronized NavigableMap<LocalDate, List<Event>> query(LocalDate from, LocalDate to) {
+        TreeMap<LocalDate, List<Event>> result = new TreeMap<>();
+        if (from.compareTo(to) > 0) {
+            return result;
+        }
+        ensureLoaded(from, to);
+        for (Map.Entry<LocalDate, List<Event>> entry : eventsByDate.subMap(from, true, to, true).entrySet()) {
+            result.put(entry.getKey(), copyOf(entry.getValue()));
+        }
+        expandSeries((int) from.toEpochDay(), (int) to.toEpochDay(), result);
+        // 删除时把最后一个事件移到空位，索引中的每日列表不保持顺序
+        for (List<Event> dayEvents : result.values()) {
+            Collections.sort(dayEvents);
+        }
+        return result;
+    }
+
+    /**
+     * 列出磁盘上存在分片的所有月份，用于按月遍历全部事件。
+     *
+     * @return 升序的月份集合
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public NavigableSet<YearMonth> storedMonths() {
+        return shards.storedMonths();
+    }
+
+    /**
+     * 获取某个月份中保存的普通事件，不包括重复系列展开的实例。
+     *
+     * @param month 月份
+     * @return 该月事件的副本，按日期排列
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public synchronized List<Event> getStoredEvents(YearMonth month) {
+        ensureMonthLoaded(month);
+        return copyOf(eventsOfShard(month));
+    }
+
+    /**
+     * 获取所有重复系列的主事件。
+     *
+     * @return 主事件的副本列表
+     */
+    public synchronized List<Event> getSeries() {
+        return copyOf(seriesById.values());
+    }
+
+    /**
+     * 核心函数：按描述文本搜索事件，结果按日期升序分页返回。
+     * 重复系列只以其第一个实例的日期出现一次。第一次搜索时会加载所有月份的分片，
+     * 每加载完一个月就释放仓库的锁，其他线程的读写不必等待所有分片重放完。
+     *
+     * @param query  查询文本，空白分隔的每个片段都必须出现在描述中
+     * @param offset 跳过的命中数
+     * @param limit  每页最多返回的命中数
+     * @return 按日期排序的命中事件
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public List<Event> search(String query, int offset, int limit) {
+        for (YearMonth month : shards.storedMonths()) {
+            synchronized (this) {
+                ensureMonthLoaded(month);
+            }
+        }
+        synchronized (this) {
+            return copyOf(searchIndex.search(query, offset, limit));
+        }
+    }
+
+    /**
+     * 获取某一天的所有事件，包括重复系列在该日的实例。
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private List<Event> eventsOn(LocalDate date) {
+        List<Event> stored = eventsByDate.get(date);
+        List<Event> events = stored == null ? new ArrayList<>() : new ArrayList<>(stored);
+        if (!seriesById.isEmpty()) {
+            TreeMap<LocalDate, List<Event>> expanded = new TreeMap<>();
+            int epochDay = (int) date.toEpochDay();
+            expandSeries(epochDay, epochDay, expanded);
+            List<Event> occurrences = expanded.get(date);
+            if (occurrences != null) {
+                events.addAll(occurrences);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * 核心函数：将所有重复系列在 [fromEpochDay, toEpochDay] 内的实例展开到结果中。
+     * 实例是临时对象，只在本次查询的结果中存在。
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void expandSeries(int fromEpochDay, int toEpochDay, TreeMap<LocalDate, List<Event>> result) {
+        for (Event master : seriesById.values()) {
+            for (int epochDay : master.getRecurrence().occurrencesBetween(master.getEpochDay(), fromEpochDay, toEpochDay)) {
+                LocalDate date = LocalDate.ofEpochDay(epochDay);
+                List<Event> events = result.get(date);
+                if (events == null) {
+                    events = new ArrayList<>();
+                    result.put(date, events);
+                }
+                events.add(master.createOccurrence(epochDay));
+            }
+        }
+    }
+
+    /**
+     * 复制一组仓库中的事件，返回给调用方。
+     */
+    private static List<Event> copyOf(Collection<Event> events) {
+        List<Event> copies = new ArrayList<>(events.size());
+        for (Event event : events) {
+            copies.add(event.copy());
+        }
+        return copies;
+    }
+
+    /**
+     * 将事件加入内存索引。
+     */
+    private void indexEvent(Event event) {
+        Event previous = eventsById.put(event.getId(), event);
+        if (previous != null) {
+            removeFromDate(previous);
+        }
+        if (!event.isValid()) {
+            // 缺少日期或时间的事件无法显示，只保留 ID 索引以便删除，读取路径因此不需要再逐个校验
+            return;
+        }
+        searchIndex.add(event);
+        if (event.getRecurrence() != null) {
+            // 重复系列只保存主事件，系列变化可能影响任意日期的区间索引
+            seriesById.put(event.getId(), event);
+            intervalIndexes.clear();
+            return;
+        }
+        LocalDate date = event.getDate();
+        List<Event> events = eventsByDate.get(date);
+        if (events == null) {
+            events = new ArrayList<>();
+            eventsByDate.put(date, events);
+        }
+        datePositions.put(event.getId(), events.size());
+        events.add(event);
+        intervalIndexes.remove(date);
+    }
+
+    /**
+     * 将事件从内存索引中移除。
+     *
+     * @return 被移除的事件，不存在时返回 null
+     */
+    private Event unindexEvent(String id) {
+        Event removed = eventsById.remove(id);
+        if (removed != null) {
+            removeFromDate(removed);
+        }
+        return removed;
+    }
+
+    private void removeFromDate(Event event) {
+        LocalDate date = event.getDate();
+        if (!event.isValid()) return;
+        searchIndex.remove(event.getId());
+        if (seriesById.remove(event.getId()) != null) {
+            intervalIndexes.clear();
+            return;
+        }
+        intervalIndexes.remove(date);
+        Integer position = datePositions.remove(event.getId());
+        List<Event> events = eventsByDate.get(date);
+        if (events == null || position == null) return;
+        // 日期列表不保证顺序（读取方都会排序），用最后一个事件填补空位，删除为 O(1)
+        Event last = events.remove(events.size() - 1);
+        if (position < events.size()) {
+            events.set(position, last);
+            datePositions.put(last.getId(), position);
+        }
+        if (events.isEmpty()) {
+            eventsByDate.remove(date);
+        }
+    }
+
+    /**
+     * 通知监听器指定日期的事件发生了变化，date 为 null 表示所有日期都可能变化。
+     */
+    private void notifyChanged(LocalDate date) {
+        for (OnEventsChangedListener listener : listeners) {
+            listener.onEventsChanged(date);
+        }
+    }
+
+    private void addDeadRecords(YearMonth month, int count) {
+        Integer current = deadRecords.get(month);
+        deadRecords.put(month, current == null ? count : current + count);
+    }
+
+    /**
+     * 获取某个分片中当前有效的事件，month 为 null 表示公共分片。
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private List<Event> eventsOfShard(YearMonth month) {
+        List<Event> events = new ArrayList<>();
+        if (month == null) {
+            for (Event event : eventsById.values()) {
+                if (EventShards.monthOf(event) == null) {
+                    events.add(event);
+                }
+            }
+            return events;
+        }
+        for (List<Event> dayEvents : eventsByDate.subMap(month.atDay(1), true, month.atEndOfMonth(), true).values()) {
+            events.addAll(dayEvents);
+        }
+        return events;
+    }
+
+    /**
+     * 当分片中的无效记录多于有效事件时压缩该分片，使分片大小与该月事件数量成正比。
+     * 冷月份压缩为 gzip 快照。
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void compactIfNeeded(YearMonth month) {
+        if (readOnlyMonths.containsKey(month)) {
+            return;
+        }
+        Integer dead = deadRecords.get(month);
+        if (dead == null || dead < COMPACT_MIN_DEAD_RECORDS) {
+            return;
+        }
+        List<Event> live = eventsOfShard(month);
+        if (dead < live.size()) {
+            return;
+        }
+        EventLog log = month == null ? shards.commonLog() : shards.monthLog(month);
+        boolean compress = month != null && EventShards.isCold(month);
+        // 压缩在写线程上进行，这里只传递该分片当前事件的快照
+        writeQueue.rewrite(log, live, compress)
+                .thenRun(() -> Log.d(TAG, "分片 " + (month == null ? "common" : month) + " 已压缩，剩余 " + live.size() + " 个事件"));
+        deadRecords.remove(month);
+    }
+}
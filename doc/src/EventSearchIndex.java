@@ -0,0 +1,277 @@
+/**
+ * EventSearchIndex 类是事件描述的全文倒排索引。
+ * 中文没有空格分词，因此把描述中每个连续的非空白片段切分为相邻两个字符的二元组（bigram），
+ * 另外为每个单字建立索引以支持单字查询。每个词项的倒排表是按 (纪元日, 文档号) 升序的 long 数组，
+ * 查询时从最短的倒排表开始求交集，结果天然按日期排序，分页时不需要对全部命中结果排序。
+ * 索引随事件仓库的添加和删除增量维护。每个文档记录建立索引时的日期和描述，删除时据此找回倒排表，
+ * 即使事件对象在此之后被修改也不会留下指向已删除文档的倒排项；被删除的文档过多时整体重建以回收文档号。
+ */
+public class EventSearchIndex {
+
+    // 触发重建的最少已删除文档数
+    private static final int COMPACT_MIN_DELETED = 64;
+
+    // 词项到倒排表的映射
+    private final Map<String, Postings> postingsByTerm = new HashMap<>();
+    // 文档号到文档的映射，被删除的文档对应位置为 null
+    private final List<Document> documents = new ArrayList<>();
+    // 事件 ID 到文档号的映射
+    private final Map<String, Integer> documentIds = new HashMap<>();
+    // documents 中已删除（为 null）的位置数
+    private int deletedCount;
+
+    /**
+     * 一个被索引的事件，以及建立索引时的日期和描述。
+     */
+    private static class Document {
+        final Event event;
+        final int epochDay;
+        final String description;
+
+        Document(Event event) {
+            this.event = event;
+            this.epochDay = event.getEpochDay();
+            this.description = event.getDescription();
+        }
+    }
+
+    /**
+     * 单个词项的倒排表，元素为 (纪元日 << 32 | 文档号)，升序保存。
+     */
+    private static class Postings {
+        long[] keys = new long[4];
+        int size;
+
+        void add(long key) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            if (index >= 0) return;
+            int insertAt = -index - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            System.arraycopy(keys, insertAt, keys, insertAt + 1, size - insertAt);
+            keys[insertAt] = key;
+            size++;
+        }
+
+        void remove(long key) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            if (index < 0) return;
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            size--;
+        }
+
+        boolean contains(long key) {
+            return Arrays.binarySearch(keys, 0, size, key) >= 0;
+        }
+    }
+
+    /**
+     * 将事件加入索引，没有日期或描述的事件不会被索引。
+     *
+     * @param event 要索引的事件
+     */
+    public void add(Event event) {
+        if (event.getEpochDay() == Event.NO_DATE || event.getDescription() == null) {
+            return;
+        }
+        remove(event.getId());
+        insert(new Document(event));
+    }
+
+    private void insert(Document document) {
+        int documentId = documents.size();
+        documents.add(document);
+        documentIds.put(document.event.getId(), documentId);
+        long key = key(document.epochDay, documentId);
+        for (String term : tokenize(document.description)) {
+            Postings postings = postingsByTerm.get(term);
+            if (postings == null) {
+                postings = new Postings();
+                postingsByTerm.put(term, postings);
+            }
+            postings.add(key);
+        }
+    }
+
+    /**
+     * 将事件从索引中移除。
+     *
+     * @param eventId 事件 ID
+     */
+    public void remove(String eventId) {
+        Integer documentId = documentIds.remove(eventId);
+        if (documentId == null) {
+            return;
+        }
+        // 使用建立索引时的日期和描述，而不是事件对象当前的字段
+        Document document = documents.set(documentId, null);
+        deletedCount++;
+        long key = key(document.epochDay, documentId);
+        for (String term : tokenize(document.description)) {
+            Postings postings = postingsByTerm.get(term);
+            if (postings == null) continue;
+            postings.remove(key);
+            if (postings.size == 0) {
+                postingsByTerm.remove(term);
+            }
+        }
+        if (deletedCount >= COMPACT_MIN_DELETED && deletedCount * 2 > documents.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * 重建索引，丢弃已删除文档占用的文档号，使 documents 的大小回到有效文档数。
+     */
+    private void compact() {
+        List<Document> live = new ArrayList<>(documents.size() - deletedCount);
+        for (Document document : documents) {
+            if (document != null) {
+                live.add(document);
+            }
+        }
+        clear();
+        for (Document document : live) {
+            insert(document);
+        }
+    }
+
+    /**
+     * 清空索引。
+     */
+    public void clear() {
+        postingsByTerm.clear();
+        documents.clear();
+        documentIds.clear();
+        deletedCount = 0;
+    }
+
+    /**
+     * 核心函数：查找描述中包含查询文本的事件，按日期升序分页返回。
+     * 查询文本中的空白视为分隔符，每个片段都必须出现在描述中。
+     *
+     * @param query  查询文本
+     * @param offset 跳过的命中数
+     * @param limit  最多返回的命中数
+     * @return 按日期排序的命中事件
+     */
+    public List<Event> search(String query, int offset, int limit) {
+        List<Event> result = new ArrayList<>();
+        List<String> fragments = splitFragments(query);
+        if (fragments.isEmpty() || limit <= 0) {
+            return result;
+        }
+
+        // 收集所有词项的倒排表，任一词项不存在时不可能有命中
+        Set<String> terms = new HashSet<>();
+        for (String fragment : fragments) {
+            addTerms(fragment, terms);
+        }
+        List<Postings> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Postings postings = postingsByTerm.get(term);
+            if (postings == null) {
+                return result;
+            }
+            lists.add(postings);
+        }
+        // 从最短的倒排表开始求交集
+        Collections.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        Postings shortest = lists.get(0);
+
+        int skipped = 0;
+        for (int i = 0; i < shortest.size && result.size() < limit; i++) {
+            long key = shortest.keys[i];
+            if (!containsInAll(lists, key)) {
+                continue;
+            }
+            // 二元组都出现不代表片段连续出现，需要用原文确认
+            Document document = documents.get((int) key);
+            if (document == null || !matchesAll(document.description, fragments)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            result.add(document.event);
+        }
+        return result;
+    }
+
+    private static boolean containsInAll(List<Postings> lists, long key) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesAll(String description, List<String> fragments) {
+        String normalized = description.toLowerCase(Locale.ROOT);
+        for (String fragment : fragments) {
+            if (!normalized.contains(fragment)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long key(int epochDay, int documentId) {
+        // 纪元日在高 32 位，保证按日期排序；文档号在低 32 位
+        return ((long) epochDay << 32) | (documentId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 将描述切分为去重后的词项：每个片段的所有单字和相邻二元组。
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> terms = new HashSet<>();
+        for (String fragment : splitFragments(text)) {
+            addTerms(fragment, terms);
+            for (int i = 0; i < fragment.length(); i++) {
+                terms.add(fragment.substring(i, i + 1));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 片段长度为 1 时使用单字，否则使用所有相邻二元组。
+     */
+    private static void addTerms(String fragment, Set<String> terms) {
+        if (fragment.length() == 1) {
+            terms.add(fragment);
+            return;
+        }
+        for (int i = 0; i + 2 <= fragment.length(); i++) {
+            terms.add(fragment.substring(i, i + 2));
+        }
+    }
+
+    /**
+     * 按空白字符切分并转为小写。
+     */
+    private static List<String> splitFragments(String text) {
+        List<String> fragments = new ArrayList<>();
+        if (text == null) {
+            return fragments;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean separator = i == normalized.length() || Character.isWhitespace(normalized.charAt(i));
+            if (separator) {
+                if (start >= 0) {
+                    fragments.add(normalized.substring(start, i));
+                    start = -1;
+                }
+            } else if (start < 0) {
+                start = i;
+            }
+        }
+        return fragments;
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * EventShards 类管理按月分片的事件日志。
+ * 每个月的普通事件存放在 events/yyyy-MM.log 中，写入和压缩的代价只与该月的事件数量有关；
+ * 重复系列和没有日期的事件不属于任何月份，存放在 events/common.log 中。
+ * 早于 COLD_MONTHS 个月的月份视为冷数据，会被压缩为 gzip 快照，只在界面需要该月时才读取。
+ */
+public class EventShards {
+
+    // 分片所在的目录名
+    static final String DIRECTORY_NAME = "events";
+    // 重复系列和没有日期的事件所在的分片名
+    private static final String COMMON_SHARD_NAME = "common";
+    // 日志文件后缀
+    private static final String LOG_SUFFIX = ".log";
+    // 多少个月之前的数据视为冷数据
+    private static final int COLD_MONTHS = 3;
+
+    // 分片目录
+    private final File directory;
+    // 重复系列和没有日期的事件的分片
+    private final EventLog commonLog;
+    // 已打开的月份分片
+    private final Map<YearMonth, EventLog> monthLogs = new HashMap<>();
+
+    /**
+     * 构造函数，目录不存在时会被创建。
+     *
+     * @param directory 分片目录
+     */
+    public EventShards(File directory) {
+        this.directory = directory;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e("EventShards", "创建分片目录失败: " + directory);
+        }
+        this.commonLog = new EventLog(new File(directory, COMMON_SHARD_NAME + LOG_SUFFIX));
+    }
+
+    /**
+     * 判断分片存储是否已经初始化。公共分片总是在迁移完成时写入，因此以它作为标记。
+     *
+     * @return 已初始化时返回 true
+     */
+    public boolean exists() {
+        return commonLog.exists();
+    }
+
+    /**
+     * 获取重复系列和没有日期的事件所在的分片。
+     *
+     * @return 公共分片
+     */
+    public EventLog commonLog() {
+        return commonLog;
+    }
+
+    /**
+     * 获取指定月份的分片，同一月份总是返回同一个对象。
+     *
+     * @param month 月份
+     * @return 月份分片
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public synchronized EventLog monthLog(YearMonth month) {
+        EventLog log = monthLogs.get(month);
+        if (log == null) {
+            log = new EventLog(new File(directory, month + LOG_SUFFIX));
+            monthLogs.put(month, log);
+        }
+        return log;
+    }
+
+    /**
+     * 获取事件应当写入的分片。
+     *
+     * @param event 事件
+     * @return 重复系列和没有日期的事件返回公共分片，其他事件返回其日期所在月份的分片
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public EventLog logFor(Event event) {
+        YearMonth month = monthOf(event);
+        return month == null ? commonLog : monthLog(month);
+    }
+
+    /**
+     * 获取事件所属的月份分片。
+     *
+     * @param event 事件
+     * @return 月份，属于公共分片时返回 null
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public static YearMonth monthOf(Event event) {
+        if (event.getRecurrence() != null || event.getDate() == null) {
+            return null;
+        }
+        return YearMonth.from(event.getDate());
+    }
+
+    /**
+     * 列出磁盘上存在分片的所有月份。
+     *
+     * @return 升序的月份集合
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public NavigableSet<YearMonth> storedMonths() {
+        NavigableSet<YearMonth> months = new TreeSet<>();
+        String[] names = directory.list();
+        if (names == null) {
+            return months;
+        }
+        for (String name : names) {
+            int end = name.indexOf(LOG_SUFFIX);
+            if (end <= 0 || name.endsWith(".tmp")) continue;
+            try {
+                months.add(YearMonth.parse(name.substring(0, end)));
+            } catch (DateTimeParseException e) {
+                // 公共分片或其他文件
+            }
+        }
+        return months;
+    }
+
+    /**
+     * 判断月份是否为冷数据。
+     *
+     * @param month 月份
+     * @return 早于当前月份 COLD_MONTHS 个月时返回 true
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public static boolean isCold(YearMonth month) {
+        return month.isBefore(YearMonth.now().minusMonths(COLD_MONTHS));
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * EventTypeAdapter 类是 Event 的流式 JSON 适配器。
+ * 直接基于 JsonReader/JsonWriter 读写 Event 的原始字段，不经过反射，也不经过 DateTimeFormatter；
+ * 输出与原先反射方式生成的 JSON 逐字节一致：字段顺序为 id、date、startTime、endTime、description，
+ * 空字段省略，日期为 ISO 本地日期格式，时间为 HH:mm 格式（事件时间精确到分钟）。
+ */
+@RequiresApi(api = Build.VERSION_CODES.O)
+public class EventTypeAdapter extends TypeAdapter<Event> {
+    private static final String TAG = "EventTypeAdapter";
+
+    /**
+     * 将事件写入 JSON。
+     *
+     * @param out   JSON 输出流
+     * @param event 要写入的事件
+     * @throws IOException 写入失败
+     */
+    @Override
+    public void write(JsonWriter out, Event event) throws IOException {
+        if (event == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (event.getId() != null) {
+            out.name("id").value(event.getId());
+        }
+        if (event.getEpochDay() != Event.NO_DATE) {
+            out.name("date").value(formatDate(LocalDate.ofEpochDay(event.getEpochDay())));
+        }
+        if (event.getStartMinute() != Event.NO_TIME) {
+            out.name("startTime").value(Event.formatMinute(event.getStartMinute()));
+        }
+        if (event.getEndMinute() != Event.NO_TIME) {
+            out.name("endTime").value(Event.formatMinute(event.getEndMinute()));
+        }
+        if (event.getDescription() != null) {
+            out.name("description").value(event.getDescription());
+        }
+        out.endObject();
+    }
+
+    /**
+     * 核心函数：从 JSON 中读取一个事件。
+     * 未知字段会被跳过；无法解析的日期或时间记录日志后置为 null，与原先的适配器行为一致。
+     *
+     * @param in JSON 输入流
+     * @return 读取到的事件
+     * @throws IOException 读取失败
+     */
+    @Override
+    public Event read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        String id = null;
+        int epochDay = Event.NO_DATE;
+        int startMinute = Event.NO_TIME;
+        int endMinute = Event.NO_TIME;
+        String description = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "id":
+                    id = in.nextString();
+                    break;
+                case "date":
+                    LocalDate date = parseDate(in.nextString());
+                    epochDay = date == null ? Event.NO_DATE : (int) date.toEpochDay();
+                    break;
+                case "startTime":
+                    startMinute = Event.toMinute(parseTime(in.nextString()));
+                    break;
+                case "endTime":
+                    endMinute = Event.toMinute(parseTime(in.nextString()));
+                    break;
+                case "description":
+                    description = in.nextString();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        // 与反射方式保持一致：JSON 中没有 ID 时生成新的 ID
+        if (id == null) {
+            id = EventIds.next();
+        }
+        return new Event(id, epochDay, startMinute, endMinute, description);
+    }
+
+    /**
+     * 将日期格式化为 yyyy-MM-dd，超出四位年份范围时交给标准格式化器。
+     */
+    static String formatDate(LocalDate date) {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            return DateTimeFormatter.ISO_LOCAL_DATE.format(date);
+        }
+        char[] chars = new char[10];
+        chars[0] = (char) ('0' + year / 1000);
+        chars[1] = (char) ('0' + year / 100 % 10);
+        chars[2] = (char) ('0' + year / 10 % 10);
+        chars[3] = (char) ('0' + year % 10);
+        chars[4] = '-';
+        putTwoDigits(chars, 5, date.getMonthValue());
+        chars[7] = '-';
+        putTwoDigits(chars, 8, date.getDayOfMonth());
+        return new String(chars);
+    }
+
+    /**
+     * 解析 yyyy-MM-dd 格式的日期，格式不符时退回标准解析器。
+     */
+    static LocalDate parseDate(String value) {
+        try {
+            if (value.length() == 10 && value.charAt(4) == '-' && value.charAt(7) == '-') {
+                int year = digits(value, 0, 4);
+                int month = digits(value, 5, 2);
+                int day = digits(value, 8, 2);
+                if (year >= 0 && month >= 0 && day >= 0) {
+                    return LocalDate.of(year, month, day);
+                }
+            }
+            return LocalDate.parse(value, DateTimeFormatter.ISO_LOCAL_DATE);
+        } catch (Exception e) {
+            Log.e(TAG, "日期解析错误: " + value, e);
+            return null;
+        }
+    }
+
+    /**
+     * 解析 HH:mm 或 HH:mm:ss 格式的时间，格式不符时退回标准解析器。
+     */
+    static LocalTime parseTime(String value) {
+        try {
+            int length = value.length();
+            if ((length == 5 || length == 8) && value.charAt(2) == ':') {
+                int hour = digits(value, 0, 2);
+                int minute = digits(value, 3, 2);
+                int second = 0;
+                if (length == 8) {
+                    second = value.charAt(5) == ':' ? digits(value, 6, 2) : -1;
+                }
+                if (hour >= 0 && minute >= 0 && second >= 0) {
+                    return LocalTime.of(hour, minute, second);
+                }
+            }
+            return LocalTime.parse(value, DateTimeFormatter.ISO_LOCAL_TIME);
+        } catch (Exception e) {
+            Log.e(TAG, "时间解析错误: " + value, e);
+            return null;
+        }
+    }
+
+    /**
+     * 读取字符串中从 start 开始的 count 位十进制数字，遇到非数字返回 -1。
+     */
+    private static int digits(String value, int start, int count) {
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static void putTwoDigits(char[] chars, int offset, int value) {
+        chars[offset] = (char) ('0' + value / 10);
+        chars[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    /**
+     * 事件列表的流式适配器，逐个委托给 EventTypeAdapter。
+     */
+    public static class ListAdapter extends TypeAdapter<List<Event>> {
+        private final EventTypeAdapter eventAdapter;
+
+        public ListAdapter(EventTypeAdapter eventAdapter) {
+            this.eventAdapter = eventAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, List<Event> events) throws IOException {
+            if (events == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (Event event : events) {
+                eventAdapter.write(out, event);
+            }
+            out.endArray();
+        }
+
+        @Override
+        public List<Event> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            List<Event> events = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                events.add(eventAdapter.read(in));
+            }
+            in.endArray();
+            return events;
+        }
+    }
+}
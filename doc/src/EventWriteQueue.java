@@ -0,0 +1,359 @@
+/**
+ * EventWriteQueue 类是事件日志的后写队列。
+ * 事件仓库在调用线程上立即更新内存索引，日志记录则交给唯一的写线程批量写入：
+ * 一批中的所有记录作为日志中的一帧提交，只 fsync 一次；同一批中先添加后删除的事件互相抵消，
+ * 尚未写入的重复系列的例外日期直接并入系列记录，都不再单独写入日志。
+ * 每次提交都返回一个 CompletableFuture，在对应的记录写入文件后完成。
+ * 各分片独立提交：一个分片写入失败只影响该分片中的记录，失败的记录放回队首，在下一批中重试，
+ * 重试次数用完后才以异常完成，其他分片的记录照常保存。
+ */
+@RequiresApi(api = Build.VERSION_CODES.O)
+public class EventWriteQueue {
+    private static final String TAG = "EventWriteQueue";
+
+    // 记录类型：重写日志，参见 EventLog 中的其他记录类型
+    private static final byte OP_REWRITE = 0;
+    // 记录类型：将日志压缩为快照
+    private static final byte OP_COMPRESS = -1;
+    // 每条记录最多尝试写入的次数
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    // 按月分片的事件日志
+    private final EventShards shards;
+    // 唯一的写线程
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "event-writer"));
+
+    // 等待写入的记录，按提交顺序排列
+    private final List<Mutation> pending = new ArrayList<>();
+    // 所有尚未完成的记录：等待中的、正在写入的和等待重试的，flush 据此等待所有分片
+    private final Set<Mutation> unfinished = new LinkedHashSet<>();
+    // 写线程是否已安排了一次批量写入
+    private boolean drainScheduled = false;
+
+    /**
+     * 一条等待写入的记录。
+     */
+    private static class Mutation {
+        final byte op;
+        final EventLog log;
+        final Event event;
+        final int epochDay;
+        final Collection<Event> snapshot;
+        // 记录写入后需要完成的 Future，被合并的记录会把自己的 Future 交给合并后的记录
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        // 被后续删除抵消的添加记录
+        boolean cancelled;
+        // 已经尝试写入的次数
+        int attempts;
+
+        Mutation(byte op, EventLog log, Event event, int epochDay, Collection<Event> snapshot) {
+            this.op = op;
+            this.log = log;
+            this.event = event;
+            this.epochDay = epochDay;
+            this.snapshot = snapshot;
+        }
+    }
+
+    /**
+     * 构造函数。
+     *
+     * @param shards 按月分片的事件日志，每条记录写入事件所属的分片
+     */
+    public EventWriteQueue(EventShards shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * 提交一条添加事件的记录。
+     *
+     * @param event 要添加的事件
+     * @return 记录写入文件后完成的 Future
+     */
+    public synchronized CompletableFuture<Void> add(Event event) {
+        return enqueue(new Mutation(EventLog.OP_ADD, shards.logFor(event), event, Event.NO_DATE, null));
+    }
+
+    /**
+     * 提交一组添加事件的记录。这些记录保证在同一批中写入，每个分片中的记录位于同一帧，
+     * 进程被杀时同一分片中的这些记录要么全部保存，要么全部丢失。
+     *
+     * @param events 要添加的事件
+     * @return 所有记录都写入文件后完成的 Future，任一记录写入失败时以异常完成
+     */
+    public synchronized CompletableFuture<Void> addAll(List<Event> events) {
+        // 各分片独立提交、失败的分片会重试，最后一条记录完成时其他分片不一定已经保存
+        List<CompletableFuture<Void>> futures = new ArrayList<>(events.size());
+        for (Event event : events) {
+            futures.add(add(event));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * 提交一条删除事件的记录。如果该事件的添加记录还未写入，两条记录都不再写入日志。
+     *
+     * @param event 要删除的事件
+     * @return 记录写入文件后完成的 Future
+     */
+    public synchronized CompletableFuture<Void> delete(Event event) {
+        Mutation pendingAdd = findPendingAdd(event.getId());
+        if (pendingAdd != null) {
+            pendingAdd.cancelled = true;
+            return attach(pendingAdd);
+        }
+        return enqueue(new Mutation(EventLog.OP_DELETE, shards.logFor(event), event, Event.NO_DATE, null));
+    }
+
+    /**
+     * 提交一条重复系列例外记录。如果系列的添加记录还未写入，例外日期会随系列规则一起写入。
+     *
+     * @param master   重复系列的主事件，其规则已包含该例外日期
+     * @param epochDay 被删除实例的日期
+     * @return 记录写入文件后完成的 Future
+     */
+    public synchronized CompletableFuture<Void> exception(Event master, int epochDay) {
+        Mutation pendingAdd = findPendingAdd(master.getId());
+        if (pendingAdd != null) {
+            return attach(pendingAdd);
+        }
+        return enqueue(new Mutation(EventLog.OP_EXCEPTION, shards.commonLog(), master, epochDay, null));
+    }
+
+    /**
+     * 提交一次分片重写。快照已经包含该分片之前所有记录的结果，因此该分片尚未写入的记录都不再单独写入。
+     *
+     * @param log      要重写的分片
+     * @param snapshot 该分片当前所有有效事件的快照
+     * @param compress 为 true 时压缩为 gzip 快照，用于冷数据
+     * @return 重写完成后完成的 Future
+     */
+    public synchronized CompletableFuture<Void> rewrite(EventLog log, Collection<Event> snapshot, boolean compress) {
+        Mutation rewrite = new Mutation(compress ? OP_COMPRESS : OP_REWRITE, log, null, Event.NO_DATE, snapshot);
+        for (Iterator<Mutation> iterator = pending.iterator(); iterator.hasNext();) {
+            Mutation mutation = iterator.next();
+            if (mutation.log == log) {
+                rewrite.futures.addAll(mutation.futures);
+                iterator.remove();
+                unfinished.remove(mutation);
+            }
+        }
+        return enqueue(rewrite);
+    }
+
+    /**
+     * 获取一个在目前已提交的所有记录写入文件后完成的 Future。
+     * 等待所有分片中尚未完成的记录，包括正在写入和等待重试的记录。
+     *
+     * @return Future，任一记录最终写入失败时以异常完成
+     */
+    public synchronized CompletableFuture<Void> flush() {
+        if (unfinished.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(unfinished.size());
+        for (Mutation mutation : unfinished) {
+            futures.add(attach(mutation));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    private CompletableFuture<Void> enqueue(Mutation mutation) {
+        CompletableFuture<Void> future = attach(mutation);
+        pending.add(mutation);
+        unfinished.add(mutation);
+        if (!drainScheduled) {
+            drainScheduled = true;
+            writer.execute(this::drain);
+        }
+        return future;
+    }
+
+    private static CompletableFuture<Void> attach(Mutation mutation) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        mutation.futures.add(future);
+        return future;
+    }
+
+    private Mutation findPendingAdd(String eventId) {
+        // 同一事件的添加和删除总是写入同一个分片
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            Mutation mutation = pending.get(i);
+            if (mutation.op == EventLog.OP_ADD && !mutation.cancelled
+                    && mutation.event.getId().equals(eventId)) {
+                return mutation;
+            }
+        }
+        return null;
+    }
+
+    private Mutation findPendingRewrite(EventLog log) {
+        for (Mutation mutation : pending) {
+            if (mutation.log == log && (mutation.op == OP_REWRITE || mutation.op == OP_COMPRESS)) {
+                return mutation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 核心函数：在写线程上取出当前所有等待的记录，按分片分组，每个分片的记录一次写入并只刷新一次。
+     * 需要重试的记录按原顺序放回队首，排在这期间新提交的记录之前，保证同一分片中的记录顺序不变。
+     */
+    private void drain() {
+        List<Mutation> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            drainScheduled = false;
+        }
+
+        Map<EventLog, List<Mutation>> byLog = new LinkedHashMap<>();
+        for (Mutation mutation : batch) {
+            List<Mutation> mutations = byLog.get(mutation.log);
+            if (mutations == null) {
+                mutations = new ArrayList<>();
+                byLog.put(mutation.log, mutations);
+            }
+            mutations.add(mutation);
+        }
+        List<Mutation> retry = new ArrayList<>();
+        for (Map.Entry<EventLog, List<Mutation>> entry : byLog.entrySet()) {
+            drainLog(entry.getKey(), entry.getValue(), retry);
+        }
+
+        if (!retry.isEmpty()) {
+            synchronized (this) {
+                List<Mutation> requeued = new ArrayList<>(retry.size());
+                for (Mutation mutation : retry) {
+                    // 这期间提交的重写快照已经包含了这条记录的结果，与 rewrite 中的处理相同
+                    Mutation rewrite = findPendingRewrite(mutation.log);
+                    if (rewrite != null) {
+                        rewrite.futures.addAll(mutation.futures);
+                        unfinished.remove(mutation);
+                    } else {
+                        requeued.add(mutation);
+                    }
+                }
+                pending.addAll(0, requeued);
+                if (!drainScheduled) {
+                    drainScheduled = true;
+                    writer.execute(this::drain);
+                }
+            }
+        }
+    }
+
+    /**
+     * 写入并提交一个分片中的记录。
+     * 单条记录编码失败时只让这条记录失败；重写或提交失败时，该分片尚未保存的记录全部进入重试。
+     *
+     * @param log       分片
+     * @param mutations 该分片中按提交顺序排列的记录
+     * @param retry     收集需要重试的记录
+     */
+    private void drainLog(EventLog log, List<Mutation> mutations, List<Mutation> retry) {
+        // 已追加到当前帧、等待提交的记录
+        List<Mutation> staged = new ArrayList<>();
+        for (int i = 0; i < mutations.size(); i++) {
+            Mutation mutation = mutations.get(i);
+            if (mutation.cancelled) {
+                finish(mutation, null);
+                continue;
+            }
+            try {
+                if (write(mutation)) {
+                    staged.add(mutation);
+                } else {
+                    finish(mutation, null);
+                }
+            } catch (IOException e) {
+                if (mutation.op != OP_REWRITE && mutation.op != OP_COMPRESS) {
+                    // 记录无法编码，重试也不会成功；帧中没有留下这条记录，其余记录照常提交
+                    Log.e(TAG, "无法写入事件记录: " + mutation.event.getId(), e);
+                    finish(mutation, e);
+                    continue;
+                }
+                // 重写失败时原文件保持不变；之后的记录必须排在重写之后，不能先提交到旧文件
+                Log.e(TAG, "重写分片失败，" + (mutations.size() - i) + " 条记录将重试", e);
+                retryOrFail(mutations.subList(i, mutations.size()), e, retry);
+                break;
+            }
+        }
+
+        try {
+            // 该分片中的整批记录作为一帧写入，只 fsync 一次
+            log.commit();
+        } catch (IOException e) {
+            // 提交失败时整帧被丢弃，这些记录都还没有保存
+            Log.e(TAG, "提交事件日志失败，" + staged.size() + " 条记录将重试", e);
+            retryOrFail(staged, e, retry);
+            return;
+        }
+        for (Mutation mutation : staged) {
+            finish(mutation, null);
+        }
+    }
+
+    /**
+     * 将记录放入重试列表；已经用完尝试次数的记录以异常完成，此时内存中的事件与分片不再一致，
+     * 直到下一次重写该分片。
+     */
+    private void retryOrFail(List<Mutation> mutations, IOException failure, List<Mutation> retry) {
+        for (Mutation mutation : mutations) {
+            if (++mutation.attempts < MAX_WRITE_ATTEMPTS) {
+                retry.add(mutation);
+            } else {
+                Log.e(TAG, "记录重试 " + MAX_WRITE_ATTEMPTS + " 次后仍未保存");
+                finish(mutation, failure);
+            }
+        }
+    }
+
+    /**
+     * 记录写入完成或最终失败。Future 的回调可能调用事件仓库，因此在锁外完成。
+     */
+    private void finish(Mutation mutation, IOException failure) {
+        List<CompletableFuture<Void>> futures;
+        synchronized (this) {
+            unfinished.remove(mutation);
+            futures = new ArrayList<>(mutation.futures);
+        }
+        for (CompletableFuture<Void> future : futures) {
+            if (failure == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    /**
+     * 写入一条记录。
+     *
+     * @return 记录被追加到分片的当前帧、需要提交时返回 true
+     */
+    private boolean write(Mutation mutation) throws IOException {
+        EventLog log = mutation.log;
+        switch (mutation.op) {
+            case EventLog.OP_ADD:
+                log.appendAdd(mutation.event);
+                return true;
+            case EventLog.OP_DELETE:
+                log.appendDelete(mutation.event);
+                return true;
+            case EventLog.OP_EXCEPTION:
+                log.appendException(mutation.event.getId(), mutation.epochDay);
+                return true;
+            case OP_REWRITE:
+                log.rewrite(mutation.snapshot);
+                return false;
+            case OP_COMPRESS:
+                log.compress(mutation.snapshot);
+                return false;
+            default:
+                return false;
+        }
+    }
+}
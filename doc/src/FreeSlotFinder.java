@@ -0,0 +1,220 @@
+/**
+ * FreeSlotFinder 类根据已存储的事件查找空闲时间段。
+ * 每个日期用一张 1440 位的占用位图表示（每分钟一位，共 23 个 long），
+ * 事件占用的分钟区间按整字批量置位，空闲区间的查找也按字跳过全忙或全闲的 64 分钟块。
+ */
+public class FreeSlotFinder {
+
+    // 一天的分钟数
+    static final int MINUTES_PER_DAY = 24 * 60;
+    // 每张位图所需的 long 个数
+    private static final int WORDS_PER_DAY = (MINUTES_PER_DAY + 63) / 64;
+
+    // 事件仓库
+    private final EventRepository repository;
+
+    /**
+     * 空闲时间段，表示某一天中 [startMinute, endMinute) 的空闲区间。
+     */
+    public static class FreeSlot {
+        // 空闲时间段所在日期
+        public final LocalDate date;
+        // 开始分钟（包含）
+        public final int startMinute;
+        // 结束分钟（不包含）
+        public final int endMinute;
+
+        FreeSlot(LocalDate date, int startMinute, int endMinute) {
+            this.date = date;
+            this.startMinute = startMinute;
+            this.endMinute = endMinute;
+        }
+
+        /**
+         * 获取空闲时长。
+         *
+         * @return 空闲分钟数
+         */
+        public int getDurationMinutes() {
+            return endMinute - startMinute;
+        }
+
+        /**
+         * 返回 "HH:mm-HH:mm" 形式的时间段，24:00 表示当天结束。
+         *
+         * @return 时间段字符串
+         */
+        @Override
+        public String toString() {
+            String end = endMinute >= MINUTES_PER_DAY ? "24:00" : Event.formatMinute(endMinute);
+            return Event.formatMinute(startMinute) + "-" + end;
+        }
+    }
+
+    /**
+     * 构造函数。
+     *
+     * @param repository 事件仓库
+     */
+    public FreeSlotFinder(EventRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * 核心函数：查找日期范围内每天指定时间窗口中的空闲时间段。
+     * 例如“未来 14 天 08:00 到 22:00 之间所有不少于 45 分钟的空闲时段”。
+     *
+     * @param from               起始日期（包含）
+     * @param to                 结束日期（包含）
+     * @param windowStartMinute  每天查找窗口的开始分钟（包含）
+     * @param windowEndMinute    每天查找窗口的结束分钟（不包含）
+     * @param minDurationMinutes 空闲时段的最短时长
+     * @return 按日期和时间排序的空闲时间段
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public List<FreeSlot> findFreeSlots(LocalDate from, LocalDate to, int windowStartMinute,
+                                        int windowEndMinute, int minDurationMinutes) {
+        List<FreeSlot> slots = new ArrayList<>();
+        NavigableMap<LocalDate, List<Event>> eventsByDate = repository.query(from, to);
+        long[] emptyDay = new long[WORDS_PER_DAY];
+
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            List<Event> events = eventsByDate.get(date);
+            long[] occupancy = events == null ? emptyDay : buildOccupancy(events);
+            collectFreeSlots(date, occupancy, windowStartMinute, windowEndMinute, minDurationMinutes, slots);
+        }
+        return slots;
+    }
+
+    /**
+     * 查找单日第一个不少于指定时长的空闲时间段。
+     *
+     * @param date               日期
+     * @param windowStartMinute  查找窗口的开始分钟（包含）
+     * @param windowEndMinute    查找窗口的结束分钟（不包含）
+     * @param minDurationMinutes 空闲时段的最短时长
+     * @return 第一个符合条件的空闲时间段，没有时返回 null
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public FreeSlot findFirstFreeSlot(LocalDate date, int windowStartMinute, int windowEndMinute, int minDurationMinutes) {
+        List<FreeSlot> slots = findFreeSlots(date, date, windowStartMinute, windowEndMinute, minDurationMinutes);
+        return slots.isEmpty() ? null : slots.get(0);
+    }
+
+    /**
+     * 将空闲时间段列表格式化为适合放入 AI 提示词的文本，每天一行。
+     *
+     * @param slots 空闲时间段
+     * @return 格式化后的文本
+     */
+    public static String formatSlots(List<FreeSlot> slots) {
+        StringBuilder text = new StringBuilder();
+        LocalDate currentDate = null;
+        for (FreeSlot slot : slots) {
+            if (!slot.date.equals(currentDate)) {
+                if (currentDate != null) {
+                    text.append("\n");
+                }
+                currentDate = slot.date;
+                text.append("  ").append(slot.date).append(": ");
+            } else {
+                text.append("，");
+            }
+            text.append(slot);
+        }
+        if (currentDate != null) {
+            text.append("\n");
+        }
+        return text.toString();
+    }
+
+    /**
+     * 根据一天的事件构建 1440 位的占用位图。
+     *
+     * @param events 同一天的事件
+     * @return 占用位图，第 i 位为 1 表示第 i 分钟被占用
+     */
+    static long[] buildOccupancy(List<Event> events) {
+        long[] bits = new long[WORDS_PER_DAY];
+        for (Event event : events) {
+            setRange(bits, event.getStartMinute(), Math.min(event.getEndMinute(), MINUTES_PER_DAY));
+        }
+        return bits;
+    }
+
+    /**
+     * 将位图中 [from, to) 的位全部置 1，中间的整字直接赋值为全 1。
+     */
+    private static void setRange(long[] bits, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int startWord = from >>> 6;
+        int endWord = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (startWord == endWord) {
+            bits[startWord] |= firstMask & lastMask;
+            return;
+        }
+        bits[startWord] |= firstMask;
+        for (int i = startWord + 1; i < endWord; i++) {
+            bits[i] = -1L;
+        }
+        bits[endWord] |= lastMask;
+    }
+
+    /**
+     * 在位图的 [windowStart, windowEnd) 中收集长度不少于 minDuration 的连续空闲区间。
+     */
+    private static void collectFreeSlots(LocalDate date, long[] bits, int windowStart, int windowEnd,
+                                         int minDuration, List<FreeSlot> slots) {
+        int end = Math.min(windowEnd, MINUTES_PER_DAY);
+        int position = Math.max(windowStart, 0);
+        while (position < end) {
+            int freeStart = nextClearBit(bits, position);
+            if (freeStart >= end) {
+                break;
+            }
+            int freeEnd = Math.min(nextSetBit(bits, freeStart), end);
+            if (freeEnd - freeStart >= minDuration) {
+                slots.add(new FreeSlot(date, freeStart, freeEnd));
+            }
+            position = freeEnd;
+        }
+    }
+
+    /**
+     * 从 from 开始查找第一个为 1 的位，没有时返回 MINUTES_PER_DAY。
+     */
+    private static int nextSetBit(long[] bits, int from) {
+        int wordIndex = from >>> 6;
+        long word = bits[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return Math.min(wordIndex * 64 + Long.numberOfTrailingZeros(word), MINUTES_PER_DAY);
+            }
+            if (++wordIndex == bits.length) {
+                return MINUTES_PER_DAY;
+            }
+            word = bits[wordIndex];
+        }
+    }
+
+    /**
+     * 从 from 开始查找第一个为 0 的位，没有时返回 MINUTES_PER_DAY。
+     */
+    private static int nextClearBit(long[] bits, int from) {
+        int wordIndex = from >>> 6;
+        long word = ~bits[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return Math.min(wordIndex * 64 + Long.numberOfTrailingZeros(word), MINUTES_PER_DAY);
+            }
+            if (++wordIndex == bits.length) {
+                return MINUTES_PER_DAY;
+            }
+            word = ~bits[wordIndex];
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * GatewayPolicy 类描述 BlueLmClient 调用网关时的容错策略：
+ * 每次调用的总期限、可重试错误的指数退避重试、可选的对冲请求，以及熔断器的阈值。
+ * 对象创建后不可修改。
+ */
+public class GatewayPolicy {
+
+    // 一次调用（包含所有重试）的总期限（毫秒）
+    public final long deadlineMs;
+    // 最多尝试次数，包含第一次
+    public final int maxAttempts;
+    // 第一次重试前的等待时间（毫秒），之后每次翻倍
+    public final long initialBackoffMs;
+    // 重试等待时间的上限（毫秒）
+    public final long maxBackoffMs;
+    // 调用方没有指定时，是否在请求超过 p95 延迟仍未返回时发出第二个相同的请求，只用于非流式请求
+    public final boolean hedging;
+    // 对冲延迟的下限（毫秒），避免延迟样本很小时过早发出对冲请求
+    public final long minHedgeDelayMs;
+    // 连续失败多少次后熔断器打开
+    public final int failureThreshold;
+    // 熔断器打开后多久允许一次试探请求（毫秒）
+    public final long openDurationMs;
+
+    /**
+     * 构造函数。
+     *
+     * @param deadlineMs       一次调用的总期限（毫秒）
+     * @param maxAttempts      最多尝试次数
+     * @param initialBackoffMs 第一次重试前的等待时间（毫秒）
+     * @param maxBackoffMs     重试等待时间的上限（毫秒）
+     * @param hedging          调用方没有指定时是否启用对冲请求
+     * @param minHedgeDelayMs  对冲延迟的下限（毫秒）
+     * @param failureThreshold 熔断器打开前允许的连续失败次数
+     * @param openDurationMs   熔断器打开的时长（毫秒）
+     */
+    public GatewayPolicy(long deadlineMs, int maxAttempts, long initialBackoffMs, long maxBackoffMs,
+                         boolean hedging, long minHedgeDelayMs, int failureThreshold, long openDurationMs) {
+        if (maxAttempts < 1 || failureThreshold < 1) {
+            throw new IllegalArgumentException("尝试次数和失败阈值至少为 1");
+        }
+        this.deadlineMs = deadlineMs;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.hedging = hedging;
+        this.minHedgeDelayMs = minHedgeDelayMs;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMs = openDurationMs;
+    }
+
+    /**
+     * 默认策略：总期限 45 秒，最多 3 次尝试，退避 0.5 秒起、上限 4 秒，连续 5 次失败后熔断 30 秒。
+     * 对冲默认关闭，由调用方按请求开启，开启后不早于 2 秒发出。
+     *
+     * @return 默认策略
+     */
+    public static GatewayPolicy defaults() {
+        return new GatewayPolicy(45_000, 3, 500, 4_000, false, 2_000, 5, 30_000);
+    }
+
+    /**
+     * 不重试、不对冲的策略，熔断器实际上不会打开，用于连接本地模拟网关调试。
+     *
+     * @return 直通策略
+     */
+    public static GatewayPolicy passThrough() {
+        return new GatewayPolicy(Long.MAX_VALUE / 2, 1, 0, 0, false, 0, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * 计算第 retry 次重试前的等待时间，带有 ±20% 的随机抖动，避免多个客户端同时重试。
+     *
+     * @param retry 重试序号，从 1 开始
+     * @return 等待时间（毫秒）
+     */
+    long backoffMs(int retry) {
+        long base = initialBackoffMs;
+        for (int i = 1; i < retry && base < maxBackoffMs; i++) {
+            base *= 2;
+        }
+        base = Math.min(base, maxBackoffMs);
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return (long) (base * jitter);
+    }
+
+    /**
+     * 判断 HTTP 状态码是否值得重试：请求超时、限流和网关侧的临时故障。
+     *
+     * @param httpCode HTTP 状态码
+     * @return 可以重试时返回 true
+     */
+    static boolean isRetryable(int httpCode) {
+        return httpCode == 408 || httpCode == 429
+                || httpCode == HttpURLConnection.HTTP_INTERNAL_ERROR
+                || httpCode == HttpURLConnection.HTTP_BAD_GATEWAY
+                || httpCode == HttpURLConnection.HTTP_UNAVAILABLE
+                || httpCode == HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+    }
+}
@@ -1,11 +1,22 @@
 public class GsonUtils {
 
+    // 共享的 Gson 实例。Gson 本身不可变且线程安全，只需构建一次
+    private static final Gson GSON = createGson();
+
     /**
-     * 核心函数：获取一个配置好的 Gson 实例。
-     * 该实例已经注册了 LocalDate 和 LocalTime 的适配器，用于处理这两种类型的序列化和反序列化。
+     * 核心函数：获取配置好的共享 Gson 实例。
+     * 该实例已经注册了 LocalDate 和 LocalTime 的适配器，以及 Event 和事件列表的流式适配器。
      * @return 配置好的 Gson 实例
      */
     public static Gson getGson() {
+        return GSON;
+    }
+
+    /**
+     * 构建 Gson 实例，只在类加载时调用一次。
+     * @return 配置好的 Gson 实例
+     */
+    private static Gson createGson() {
         // 创建一个 GsonBuilder 实例，用于构建自定义的 Gson 配置
         GsonBuilder gsonBuilder = new GsonBuilder();
 
@@ -23,6 +34,15 @@ public class GsonUtils {
             gsonBuilder.registerTypeAdapter(LocalTime.class, new LocalTimeAdapter());
         }
 
+        // 注册 Event 及事件列表的流式适配器，避免反射读写
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            EventTypeAdapter eventAdapter = new EventTypeAdapter();
+            EventTypeAdapter.ListAdapter listAdapter = new EventTypeAdapter.ListAdapter(eventAdapter);
+            gsonBuilder.registerTypeAdapter(Event.class, eventAdapter);
+            gsonBuilder.registerTypeAdapter(new TypeToken<List<Event>>(){}.getType(), listAdapter);
+            gsonBuilder.registerTypeAdapter(new TypeToken<ArrayList<Event>>(){}.getType(), listAdapter);
+        }
+
         // 使用配置好的 GsonBuilder 创建 Gson 实例
         return gsonBuilder.create();
     }
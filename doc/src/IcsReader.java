@@ -0,0 +1,479 @@
+/**
+ * IcsReader 类是 iCalendar (.ics) 文件的流式读取器。
+ * 按行读取并展开折行，每读完一个 VEVENT 就转换为 Event 交给回调，不保留已读过的事件，
+ * 内存占用与文件大小无关。
+ * 支持的属性：UID、DTSTART、DTEND、DURATION、SUMMARY、RRULE、EXDATE、RECURRENCE-ID。
+ * 事件只能表示一天之内的时间段，跨天的事件截止到当天 23:59，全天事件为 00:00-23:59；
+ * 重复规则只支持 RecurrenceRule 能表示的每天、每周和工作日，其他规则只导入第一个实例并计入跳过数。
+ * 带 RECURRENCE-ID 的 VEVENT 是系列中被单独修改的实例，作为独立事件导入，
+ * 并为主系列添加原实例日期的例外，主系列出现在它之前或之后都可以。
+ */
+@RequiresApi(api = Build.VERSION_CODES.O)
+public class IcsReader implements Closeable {
+    private static final String TAG = "IcsReader";
+
+    // 一天中最后一分钟，用于全天和跨天事件
+    private static final int LAST_MINUTE = 24 * 60 - 1;
+
+    // 输入
+    private final BufferedReader reader;
+    // 展开折行时预读的下一行
+    private String lookahead;
+    // 无法导入的 VEVENT 数，包括重复规则不受支持、只导入了第一个实例的系列
+    private int skippedCount = 0;
+    // 已交给回调的重复系列的 UID
+    private final Set<String> readSeries = new HashSet<>();
+    // 主系列尚未读到的被修改实例：系列 UID -> 原实例日期（纪元日）
+    private final Map<String, Set<Integer>> pendingExceptions = new HashMap<>();
+
+    /**
+     * 读取到一个事件时的回调。
+     */
+    public interface Handler {
+        void onEvent(Event event) throws IOException;
+
+        /**
+         * 读到一个被单独修改的实例，而它的主系列已经交给了 onEvent，需要为系列补上例外日期。
+         *
+         * @param seriesId 系列 ID（UID）
+         * @param epochDay 原实例日期的纪元日
+         */
+        void onException(String seriesId, int epochDay) throws IOException;
+    }
+
+    /**
+     * 构造函数。
+     *
+     * @param in 输入，编码应为 UTF-8
+     */
+    public IcsReader(Reader in) {
+        this.reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, 64 * 1024);
+    }
+
+    /**
+     * 获取无法导入而被跳过的事件数。
+     *
+     * @return 跳过的事件数
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * 核心函数：读取整个文件，每个 VEVENT 转换为一个事件交给回调。
+     *
+     * @param handler 接收事件的回调
+     * @throws IOException 读取失败或回调失败
+     */
+    public void read(Handler handler) throws IOException {
+        VEvent current = null;
+        String line;
+        while ((line = nextLine()) != null) {
+            if (line.isEmpty()) continue;
+            int colon = findValueSeparator(line);
+            if (colon < 0) continue;
+            String head = line.substring(0, colon);
+            String value = line.substring(colon + 1);
+            int semicolon = head.indexOf(';');
+            String name = (semicolon < 0 ? head : head.substring(0, semicolon)).toUpperCase(Locale.ROOT);
+            String params = semicolon < 0 ? "" : head.substring(semicolon + 1);
+
+            if (name.equals("BEGIN") && value.equalsIgnoreCase("VEVENT")) {
+                current = new VEvent();
+            } else if (name.equals("END") && value.equalsIgnoreCase("VEVENT")) {
+                if (current != null) {
+                    Event event = current.toEvent();
+                    if (event == null) {
+                        skippedCount++;
+                    } else {
+                        if (current.unsupportedRule) {
+                            skippedCount++;
+                        }
+                        if (current.recurrenceId != null) {
+                            addOverride(current, handler);
+                        } else if (event.getRecurrence() != null) {
+                            applyPendingExceptions(event);
+                        }
+                        handler.onEvent(event);
+                    }
+                }
+                current = null;
+            } else if (current != null) {
+                current.setProperty(name, params, value);
+            }
+        }
+    }
+
+    /**
+     * 记录被单独修改的实例的原日期：主系列已经读过时通知回调补上例外，否则等读到主系列时再添加。
+     */
+    private void addOverride(VEvent override, Handler handler) throws IOException {
+        if (override.uid == null || override.uid.isEmpty()) {
+            return;
+        }
+        LocalDateTime original = parseDateTime(override.recurrenceId, override.recurrenceIdParams);
+        if (original == null) {
+            Log.w(TAG, "无法解析 RECURRENCE-ID: " + override.recurrenceId);
+            return;
+        }
+        int epochDay = (int) original.toLocalDate().toEpochDay();
+        if (readSeries.contains(override.uid)) {
+            handler.onException(override.uid, epochDay);
+        } else {
+            pendingExceptions.computeIfAbsent(override.uid, uid -> new HashSet<>()).add(epochDay);
+        }
+    }
+
+    /**
+     * 为刚读到的主系列添加此前已读到的被修改实例的例外日期。
+     */
+    private void applyPendingExceptions(Event master) {
+        readSeries.add(master.getId());
+        Set<Integer> days = pendingExceptions.remove(master.getId());
+        if (days == null) {
+            return;
+        }
+        RecurrenceRule rule = master.getRecurrence();
+        for (int day : days) {
+            rule = rule.withException(day);
+        }
+        master.setRecurrence(rule);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * 读取一个逻辑行：以空格或制表符开头的物理行是上一行的折行。
+     */
+    private String nextLine() throws IOException {
+        String line = lookahead != null ? lookahead : reader.readLine();
+        lookahead = null;
+        if (line == null) {
+            return null;
+        }
+        StringBuilder unfolded = null;
+        String next;
+        while ((next = reader.readLine()) != null) {
+            if (!next.isEmpty() && (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+                if (unfolded == null) {
+                    unfolded = new StringBuilder(line);
+                }
+                unfolded.append(next, 1, next.length());
+            } else {
+                lookahead = next;
+                break;
+            }
+        }
+        return unfolded == null ? line : unfolded.toString();
+    }
+
+    /**
+     * 查找属性名和值之间的冒号，跳过参数值中被引号括起来的冒号。
+     */
+    private static int findValueSeparator(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ':' && !quoted) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 从参数中取出指定参数的值，不存在时返回 null。
+     */
+    private static String param(String params, String name) {
+        for (String param : params.split(";")) {
+            int equals = param.indexOf('=');
+            if (equals > 0 && param.substring(0, equals).equalsIgnoreCase(name)) {
+                String value = param.substring(equals + 1);
+                return value.startsWith("\"") && value.endsWith("\"") && value.length() >= 2
+                        ? value.substring(1, value.length() - 1) : value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 将 DATE 或 DATE-TIME 值解析为本地时间。
+     * 以 Z 结尾的 UTC 时间和带 TZID 的时间会转换为设备所在时区，没有时区的时间按本地时间处理。
+     *
+     * @return 解析结果，格式不正确时返回 null
+     */
+    static LocalDateTime parseDateTime(String value, String params) {
+        try {
+            value = value.trim();
+            if (value.length() == 8) {
+                return LocalDate.of(Integer.parseInt(value.substring(0, 4)),
+                        Integer.parseInt(value.substring(4, 6)),
+                        Integer.parseInt(value.substring(6, 8))).atStartOfDay();
+            }
+            if (value.length() < 15 || value.charAt(8) != 'T') {
+                return null;
+            }
+            LocalDateTime local = LocalDateTime.of(
+                    Integer.parseInt(value.substring(0, 4)),
+                    Integer.parseInt(value.substring(4, 6)),
+                    Integer.parseInt(value.substring(6, 8)),
+                    Integer.parseInt(value.substring(9, 11)),
+                    Integer.parseInt(value.substring(11, 13)),
+                    Integer.parseInt(value.substring(13, 15)));
+            ZoneId source = null;
+            if (value.endsWith("Z")) {
+                source = ZoneOffset.UTC;
+            } else {
+                String tzid = param(params, "TZID");
+                if (tzid != null) {
+                    try {
+                        source = ZoneId.of(tzid);
+                    } catch (DateTimeException e) {
+                        // 不认识的时区按本地时间处理
+                    }
+                }
+            }
+            return source == null ? local
+                    : local.atZone(source).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        } catch (NumberFormatException | DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 解析 DURATION 值（例如 PT1H30M、P1D），返回分钟数，格式不正确时返回 -1。
+     */
+    static int parseDurationMinutes(String value) {
+        int minutes = 0;
+        int number = 0;
+        boolean inTime = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number = number * 10 + (c - '0');
+                continue;
+            }
+            switch (c) {
+                case '+':
+                case 'P':
+                    break;
+                case 'T':
+                    inTime = true;
+                    break;
+                case 'W':
+                    minutes += number * 7 * 24 * 60;
+                    break;
+                case 'D':
+                    minutes += number * 24 * 60;
+                    break;
+                case 'H':
+                    minutes += number * 60;
+                    break;
+                case 'M':
+                    if (!inTime) return -1;
+                    minutes += number;
+                    break;
+                case 'S':
+                    break;
+                default:
+                    return -1;
+            }
+            number = 0;
+        }
+        return minutes;
+    }
+
+    /**
+     * 还原 TEXT 值中的转义字符。
+     */
+    static String unescapeText(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder text = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                text.append(next == 'n' || next == 'N' ? '\n' : next);
+            } else {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * 正在读取的 VEVENT 的属性。
+     */
+    private static class VEvent {
+        String uid;
+        String recurrenceId;
+        String recurrenceIdParams;
+        LocalDateTime start;
+        boolean allDay;
+        LocalDateTime end;
+        int durationMinutes = -1;
+        String summary;
+        String rrule;
+        List<Integer> exceptionDays;
+        // RRULE 无法用 RecurrenceRule 表示，只导入了第一个实例
+        boolean unsupportedRule;
+
+        void setProperty(String name, String params, String value) {
+            switch (name) {
+                case "UID":
+                    uid = value.trim();
+                    break;
+                case "RECURRENCE-ID":
+                    recurrenceId = value.trim();
+                    recurrenceIdParams = params;
+                    break;
+                case "DTSTART":
+                    start = parseDateTime(value, params);
+                    allDay = value.trim().length() == 8;
+                    break;
+                case "DTEND":
+                    end = parseDateTime(value, params);
+                    break;
+                case "DURATION":
+                    durationMinutes = parseDurationMinutes(value.trim());
+                    break;
+                case "SUMMARY":
+                    summary = unescapeText(value);
+                    break;
+                case "RRULE":
+                    rrule = value.trim();
+                    break;
+                case "EXDATE":
+                    for (String item : value.split(",")) {
+                        LocalDateTime exception = parseDateTime(item, params);
+                        if (exception != null) {
+                            if (exceptionDays == null) {
+                                exceptionDays = new ArrayList<>();
+                            }
+                            exceptionDays.add((int) exception.toLocalDate().toEpochDay());
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * 转换为事件，缺少开始时间时返回 null。
+         */
+        Event toEvent() {
+            if (start == null) {
+                return null;
+            }
+            int epochDay = (int) start.toLocalDate().toEpochDay();
+            int startMinute;
+            int endMinute;
+            if (allDay) {
+                startMinute = 0;
+                endMinute = LAST_MINUTE;
+            } else {
+                startMinute = start.getHour() * 60 + start.getMinute();
+                if (end != null) {
+                    endMinute = end.toLocalDate().isAfter(start.toLocalDate())
+                            ? LAST_MINUTE : end.getHour() * 60 + end.getMinute();
+                } else if (durationMinutes >= 0) {
+                    endMinute = Math.min(startMinute + durationMinutes, LAST_MINUTE);
+                } else {
+                    endMinute = startMinute;
+                }
+                endMinute = Math.max(endMinute, startMinute);
+            }
+
+            String id = uid == null || uid.isEmpty() ? EventIds.next() : uid;
+            if (recurrenceId != null) {
+                // 重复系列中被单独修改的实例作为独立事件导入
+                id = id + "/" + recurrenceId;
+            }
+            Event event = new Event(id, epochDay, startMinute, endMinute, summary == null ? "" : summary.trim());
+            if (rrule != null && recurrenceId == null) {
+                RecurrenceRule rule = parseRule(rrule, start.getDayOfWeek());
+                unsupportedRule = rule == null;
+                if (rule != null && exceptionDays != null) {
+                    for (int day : exceptionDays) {
+                        rule = rule.withException(day);
+                    }
+                }
+                event.setRecurrence(rule);
+            }
+            return event;
+        }
+
+        /**
+         * 将 RRULE 转换为重复规则，不支持的规则返回 null。
+         * 每周重复时 BYDAY 只能是工作日或 DTSTART 当天的星期，其他 BYDAY 无法表示。
+         */
+        private static RecurrenceRule parseRule(String value, DayOfWeek startDay) {
+            String freq = null;
+            String byDay = null;
+            int interval = 1;
+            int until = RecurrenceRule.NO_UNTIL;
+            int count = RecurrenceRule.NO_COUNT;
+            for (String part : value.split(";")) {
+                int equals = part.indexOf('=');
+                if (equals <= 0) continue;
+                String key = part.substring(0, equals).toUpperCase(Locale.ROOT);
+                String partValue = part.substring(equals + 1);
+                try {
+                    switch (key) {
+                        case "FREQ":
+                            freq = partValue.toUpperCase(Locale.ROOT);
+                            break;
+                        case "INTERVAL":
+                            interval = Integer.parseInt(partValue);
+                            break;
+                        case "COUNT":
+                            count = Integer.parseInt(partValue);
+                            break;
+                        case "UNTIL":
+                            LocalDateTime untilTime = parseDateTime(partValue, "");
+                            if (untilTime != null) {
+                                until = (int) untilTime.toLocalDate().toEpochDay();
+                            }
+                            break;
+                        case "BYDAY":
+                            byDay = partValue.toUpperCase(Locale.ROOT);
+                            break;
+                        default:
+                            break;
+                    }
+                } catch (NumberFormatException e) {
+                    Log.w(TAG, "无法解析重复规则: " + value);
+                    return null;
+                }
+            }
+
+            if ("DAILY".equals(freq)) {
+                return new RecurrenceRule(RecurrenceRule.Frequency.DAILY, interval, until, count);
+            }
+            if ("WEEKLY".equals(freq)) {
+                if (byDay == null || byDay.equals(startDay.name().substring(0, 2))) {
+                    return new RecurrenceRule(RecurrenceRule.Frequency.WEEKLY, interval, until, count);
+                }
+                if (interval == 1 && isWeekdays(byDay)) {
+                    return new RecurrenceRule(RecurrenceRule.Frequency.WEEKDAYS, 1, until, count);
+                }
+                Log.w(TAG, "不支持的每周重复规则: " + value);
+                return null;
+            }
+            return null;
+        }
+
+        private static boolean isWeekdays(String byDay) {
+            Set<String> days = new HashSet<>(Arrays.asList(byDay.split(",")));
+            return days.size() == 5 && days.containsAll(Arrays.asList("MO", "TU", "WE", "TH", "FR"));
+        }
+    }
+}
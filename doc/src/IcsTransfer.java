@@ -0,0 +1,113 @@
+/**
+ * IcsTransfer 类负责在事件仓库和 iCalendar (.ics) 文件之间导入导出日程。
+ * 导入时边读边按批写入仓库，导出时按月份逐个分片读取事件并写出，
+ * 两个方向都不会把整个文件保存在内存中。两个方法都会阻塞，必须在后台线程上调用。
+ */
+@RequiresApi(api = Build.VERSION_CODES.O)
+public final class IcsTransfer {
+    private static final String TAG = "IcsTransfer";
+
+    // 导入时每批写入仓库的事件数
+    private static final int IMPORT_BATCH_SIZE = 1000;
+
+    private IcsTransfer() {
+    }
+
+    /**
+     * 导入或导出的结果。
+     */
+    public static class Result {
+        // 成功导入或导出的事件数
+        public final int count;
+        // 无法导入而跳过的事件数
+        public final int skipped;
+
+        Result(int count, int skipped) {
+            this.count = count;
+            this.skipped = skipped;
+        }
+    }
+
+    /**
+     * 核心函数：从 ics 文件导入日程。每攒满一批就整批交给事件仓库，不检测时间冲突，
+     * 已存在的事件（相同 UID）会被忽略，因此重复导入同一个文件是安全的。
+     * 主系列之后才读到的被修改实例，在所有批次导入后再为主系列补上例外日期。
+     *
+     * @param context 上下文
+     * @param uri     ics 文件
+     * @return 导入结果
+     * @throws Exception 读取文件或写入日志失败
+     */
+    public static Result importFrom(Context context, Uri uri) throws Exception {
+        EventRepository repository = EventRepository.getInstance(context);
+        InputStream in = context.getContentResolver().openInputStream(uri);
+        if (in == null) {
+            throw new IOException("无法打开文件: " + uri);
+        }
+
+        int[] imported = {0};
+        List<Event> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        // 系列 ID -> 需要排除的原实例日期，主系列可能还在未提交的批次中
+        Map<String, Set<Integer>> exceptions = new HashMap<>();
+        try (IcsReader reader = new IcsReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            reader.read(new IcsReader.Handler() {
+                @Override
+                public void onEvent(Event event) {
+                    batch.add(event);
+                    if (batch.size() >= IMPORT_BATCH_SIZE) {
+                        imported[0] += repository.importEvents(batch);
+                        batch.clear();
+                    }
+                }
+
+                @Override
+                public void onException(String seriesId, int epochDay) {
+                    exceptions.computeIfAbsent(seriesId, id -> new HashSet<>()).add(epochDay);
+                }
+            });
+            imported[0] += repository.importEvents(batch);
+            for (Map.Entry<String, Set<Integer>> entry : exceptions.entrySet()) {
+                for (int epochDay : entry.getValue()) {
+                    repository.excludeOccurrence(entry.getKey(), epochDay);
+                }
+            }
+            // 等待所有批次写入磁盘后再报告完成
+            repository.flush().get();
+            Log.d(TAG, "导入 " + imported[0] + " 个事件，跳过 " + reader.getSkippedCount() + " 个");
+            return new Result(imported[0], reader.getSkippedCount());
+        }
+    }
+
+    /**
+     * 核心函数：将所有日程导出为 ics 文件。重复系列以 RRULE 写出一次，不展开为实例。
+     *
+     * @param context 上下文
+     * @param uri     目标文件
+     * @return 导出结果
+     * @throws Exception 写入文件失败
+     */
+    public static Result exportTo(Context context, Uri uri) throws Exception {
+        EventRepository repository = EventRepository.getInstance(context);
+        // 确保尚未写入的月份分片已经出现在磁盘上
+        repository.flush().get();
+        OutputStream out = context.getContentResolver().openOutputStream(uri, "wt");
+        if (out == null) {
+            throw new IOException("无法创建文件: " + uri);
+        }
+
+        try (IcsWriter writer = new IcsWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.writeHeader();
+            for (Event master : repository.getSeries()) {
+                writer.writeEvent(master);
+            }
+            for (YearMonth month : repository.storedMonths()) {
+                for (Event event : repository.getStoredEvents(month)) {
+                    writer.writeEvent(event);
+                }
+            }
+            writer.writeFooter();
+            Log.d(TAG, "导出 " + writer.getWrittenCount() + " 个事件");
+            return new Result(writer.getWrittenCount(), 0);
+        }
+    }
+}
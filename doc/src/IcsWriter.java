@@ -0,0 +1,194 @@
+/**
+ * IcsWriter 类是 iCalendar (.ics) 文件的流式写入器。
+ * 事件逐个写出，不在内存中拼接整个文件；超过 75 个字节的内容行按 RFC 5545 折行。
+ * 时间以不带时区的本地时间写出，重复系列的主事件会同时写出 RRULE 和 EXDATE。
+ */
+@RequiresApi(api = Build.VERSION_CODES.O)
+public class IcsWriter implements Closeable {
+
+    // 内容行的最大字节数（不含换行）
+    private static final int MAX_LINE_OCTETS = 75;
+    // 产品标识
+    private static final String PRODUCT_ID = "-//AI Calendar//ICS Export//ZH";
+
+    // 输出
+    private final Writer writer;
+    // 所有事件共用的时间戳
+    private final String timestamp;
+    // 已写出的事件数
+    private int writtenCount = 0;
+
+    /**
+     * 构造函数。
+     *
+     * @param out 输出，编码应为 UTF-8
+     */
+    public IcsWriter(Writer out) {
+        this.writer = out instanceof BufferedWriter ? out : new BufferedWriter(out, 64 * 1024);
+        this.timestamp = formatUtc(LocalDateTime.now(ZoneOffset.UTC));
+    }
+
+    /**
+     * 获取已写出的事件数。
+     *
+     * @return 事件数
+     */
+    public int getWrittenCount() {
+        return writtenCount;
+    }
+
+    /**
+     * 写出日历头部，必须在写出事件之前调用。
+     */
+    public void writeHeader() throws IOException {
+        writeLine("BEGIN:VCALENDAR");
+        writeLine("VERSION:2.0");
+        writeLine("PRODID:" + PRODUCT_ID);
+        writeLine("CALSCALE:GREGORIAN");
+    }
+
+    /**
+     * 核心函数：写出一个事件。没有日期或时间的事件无法表示，会被忽略。
+     *
+     * @param event 普通事件或重复系列的主事件
+     * @return 写出时返回 true
+     */
+    public boolean writeEvent(Event event) throws IOException {
+        if (!event.isValid()) {
+            return false;
+        }
+        int epochDay = event.getEpochDay();
+        writeLine("BEGIN:VEVENT");
+        writeLine("UID:" + escapeText(event.getId()));
+        writeLine("DTSTAMP:" + timestamp);
+        writeLine("DTSTART:" + formatLocal(epochDay, event.getStartMinute()));
+        writeLine("DTEND:" + formatLocal(epochDay, event.getEndMinute()));
+        writeLine("SUMMARY:" + escapeText(event.getDescription() == null ? "" : event.getDescription()));
+
+        RecurrenceRule rule = event.getRecurrence();
+        if (rule != null) {
+            writeLine("RRULE:" + formatRule(rule));
+            int[] exceptions = rule.getExceptions();
+            if (exceptions.length > 0) {
+                StringBuilder exdate = new StringBuilder("EXDATE:");
+                for (int i = 0; i < exceptions.length; i++) {
+                    if (i > 0) exdate.append(',');
+                    exdate.append(formatLocal(exceptions[i], event.getStartMinute()));
+                }
+                writeLine(exdate.toString());
+            }
+        }
+        writeLine("END:VEVENT");
+        writtenCount++;
+        return true;
+    }
+
+    /**
+     * 写出日历尾部并刷新输出。
+     */
+    public void writeFooter() throws IOException {
+        writeLine("END:VCALENDAR");
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * 写出一个内容行，超过 75 个字节时折行，折行不会拆开一个 UTF-16 代理对。
+     */
+    private void writeLine(String line) throws IOException {
+        int octets = 0;
+        int lineStart = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            int size;
+            if (c < 0x80) {
+                size = 1;
+            } else if (c < 0x800) {
+                size = 2;
+            } else if (Character.isHighSurrogate(c)) {
+                size = 4;
+            } else if (Character.isLowSurrogate(c)) {
+                continue;
+            } else {
+                size = 3;
+            }
+            // 续行开头的空格占一个字节
+            if (octets + size > MAX_LINE_OCTETS) {
+                writer.write(line, lineStart, i - lineStart);
+                writer.write("\r\n ");
+                lineStart = i;
+                octets = 1;
+            }
+            octets += size;
+        }
+        writer.write(line, lineStart, line.length() - lineStart);
+        writer.write("\r\n");
+    }
+
+    /**
+     * 转义 TEXT 值中的特殊字符。
+     */
+    static String escapeText(String value) {
+        StringBuilder text = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                case ';':
+                case ',':
+                    text.append('\\').append(c);
+                    break;
+                case '\n':
+                    text.append("\\n");
+                    break;
+                case '\r':
+                    break;
+                default:
+                    text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * 将重复规则转换为 RRULE 值。
+     */
+    private static String formatRule(RecurrenceRule rule) {
+        StringBuilder value = new StringBuilder();
+        switch (rule.getFrequency()) {
+            case DAILY:
+                value.append("FREQ=DAILY");
+                break;
+            case WEEKLY:
+                value.append("FREQ=WEEKLY");
+                break;
+            default:
+                value.append("FREQ=WEEKLY;BYDAY=MO,TU,WE,TH,FR");
+                break;
+        }
+        if (rule.getFrequency() != RecurrenceRule.Frequency.WEEKDAYS && rule.getInterval() > 1) {
+            value.append(";INTERVAL=").append(rule.getInterval());
+        }
+        if (rule.getCount() != RecurrenceRule.NO_COUNT) {
+            value.append(";COUNT=").append(rule.getCount());
+        } else if (rule.getUntilEpochDay() != RecurrenceRule.NO_UNTIL) {
+            // UNTIL 的类型需与 DTSTART 一致，使用截止日期的最后一分钟
+            value.append(";UNTIL=").append(formatLocal(rule.getUntilEpochDay(), 24 * 60 - 1));
+        }
+        return value.toString();
+    }
+
+    private static String formatLocal(int epochDay, int minute) {
+        return LocalDate.ofEpochDay(epochDay).format(DateTimeFormatter.BASIC_ISO_DATE)
+                + String.format(Locale.ROOT, "T%02d%02d00", minute / 60, minute % 60);
+    }
+
+    private static String formatUtc(LocalDateTime time) {
+        return time.toLocalDate().format(DateTimeFormatter.BASIC_ISO_DATE)
+                + String.format(Locale.ROOT, "T%02d%02d%02dZ", time.getHour(), time.getMinute(), time.getSecond());
+    }
+}
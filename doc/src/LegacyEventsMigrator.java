@@ -0,0 +1,220 @@
+/**
+ * LegacyEventsMigrator 类在后台把旧版 events_prefs 中按日期存储的 JSON 事件迁移到分片存储中。
+ * 直接用 XmlPullParser 流式读取 SharedPreferences 的 XML 文件，一次只解析一个日期键，
+ * 每攒满一批就通过事件仓库整批导入，确认所有分片都写入磁盘后再记录检查点，
+ * 进程被杀后下次启动会从检查点继续，内存占用只与一批事件的大小有关。
+ * 缺少日期、开始时间或结束时间，或结束时间早于开始时间的记录视为无效，只在迁移完成时报告一次。
+ * 迁移完成后删除旧数据文件，并在主线程上通知界面刷新。
+ */
+@RequiresApi(api = Build.VERSION_CODES.O)
+public class LegacyEventsMigrator implements Runnable {
+    private static final String TAG = "LegacyEventsMigrator";
+
+    // 旧版本存储事件的 SharedPreferences 名称
+    static final String LEGACY_EVENTS_PREFS = "events_prefs";
+    // 迁移进度的键，值为已处理的日期键数量，不存在表示没有进行中的迁移
+    private static final String KEY_CHECKPOINT = "legacy_migration_checkpoint";
+    // 已跳过的无效记录数的键
+    private static final String KEY_BAD_RECORDS = "legacy_migration_bad_records";
+    // 每批写入的事件数
+    private static final int BATCH_SIZE = 500;
+
+    // 应用上下文
+    private final Context context;
+    // 事件仓库
+    private final EventRepository repository;
+    // 保存 schema 版本和迁移进度的 SharedPreferences
+    private final SharedPreferences meta;
+    // 用于解析事件 JSON 的流式适配器
+    private final EventTypeAdapter adapter = new EventTypeAdapter();
+
+    // 迁移完成的监听器
+    private static OnMigrationFinishedListener finishedListener;
+
+    /**
+     * 迁移完成的监听器接口，在主线程上调用。
+     */
+    public interface OnMigrationFinishedListener {
+        // 旧数据迁移完成，migrated 为本次迁移的事件数
+        void onMigrationFinished(int migrated);
+    }
+
+    /**
+     * 设置迁移完成的监听器，显示事件的界面据此在迁移完成后刷新。
+     *
+     * @param listener 监听器，为 null 时取消
+     */
+    public static synchronized void setOnMigrationFinishedListener(OnMigrationFinishedListener listener) {
+        finishedListener = listener;
+    }
+
+    private static synchronized OnMigrationFinishedListener getOnMigrationFinishedListener() {
+        return finishedListener;
+    }
+
+    private LegacyEventsMigrator(Context context, EventRepository repository, SharedPreferences meta) {
+        this.context = context;
+        this.repository = repository;
+        this.meta = meta;
+    }
+
+    /**
+     * 标记需要迁移旧数据。旧数据文件不存在时不做任何事。
+     *
+     * @param context 上下文
+     * @param meta    保存迁移进度的 SharedPreferences
+     */
+    static void schedule(Context context, SharedPreferences meta) {
+        if (legacyPrefsFile(context).exists() && !meta.contains(KEY_CHECKPOINT)) {
+            meta.edit().putInt(KEY_CHECKPOINT, 0).commit();
+        }
+    }
+
+    /**
+     * 如果有未完成的迁移，在后台线程上从检查点继续。
+     *
+     * @param context    上下文
+     * @param repository 事件仓库
+     * @param meta       保存迁移进度的 SharedPreferences
+     */
+    static void resumeIfNeeded(Context context, EventRepository repository, SharedPreferences meta) {
+        if (!meta.contains(KEY_CHECKPOINT)) {
+            return;
+        }
+        Thread thread = new Thread(new LegacyEventsMigrator(context, repository, meta), "legacy-events-migrator");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * 核心函数：流式读取旧数据文件，逐批迁移并记录检查点。
+     */
+    @Override
+    public void run() {
+        File file = legacyPrefsFile(context);
+        int checkpoint = meta.getInt(KEY_CHECKPOINT, 0);
+        int badRecords = meta.getInt(KEY_BAD_RECORDS, 0);
+        int processedKeys = 0;
+        int migrated = 0;
+        List<Event> batch = new ArrayList<>(BATCH_SIZE);
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            XmlPullParser parser = Xml.newPullParser();
+            parser.setInput(in, "UTF-8");
+            for (int type = parser.getEventType(); type != XmlPullParser.END_DOCUMENT; type = parser.next()) {
+                if (type != XmlPullParser.START_TAG || !"string".equals(parser.getName())) {
+                    continue;
+                }
+                String key = parser.getAttributeValue(null, "name");
+                String json = parser.nextText();
+                processedKeys++;
+                // 文件在迁移期间不会再被写入，键的顺序是稳定的，已处理的键直接跳过
+                if (processedKeys <= checkpoint) {
+                    continue;
+                }
+
+                badRecords += readEvents(key, json, batch);
+                if (batch.size() >= BATCH_SIZE) {
+                    migrated += commit(batch, processedKeys, badRecords);
+                }
+            }
+            migrated += commit(batch, processedKeys, badRecords);
+        } catch (Exception e) {
+            // 检查点之前的数据已经保存，下次启动时从检查点继续
+            Log.e(TAG, "迁移旧数据中断，已处理 " + processedKeys + " 个日期", e);
+            return;
+        }
+
+        meta.edit().remove(KEY_CHECKPOINT).remove(KEY_BAD_RECORDS).commit();
+        // 检查点清除后旧数据已不再需要；删除前被杀时文件只是残留，不会被再次迁移
+        if (!file.delete()) {
+            Log.w(TAG, "无法删除旧数据文件: " + file);
+        }
+        if (badRecords > 0) {
+            Log.w(TAG, "旧数据中有 " + badRecords + " 条无效记录未迁移");
+        }
+        Log.d(TAG, "旧数据迁移完成，本次迁移 " + migrated + " 个事件");
+
+        int total = migrated;
+        new Handler(Looper.getMainLooper()).post(() -> {
+            OnMigrationFinishedListener listener = getOnMigrationFinishedListener();
+            if (listener != null) {
+                listener.onMigrationFinished(total);
+            }
+        });
+    }
+
+    /**
+     * 解析一个日期键下的事件，有效事件规范化后加入批次。
+     *
+     * @return 无效记录数
+     */
+    private int readEvents(String key, String json, List<Event> batch) {
+        LocalDate keyDate = EventTypeAdapter.parseDate(key);
+        int bad = 0;
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Event event = normalize(adapter.read(reader), keyDate);
+                if (event == null) {
+                    bad++;
+                } else {
+                    batch.add(event);
+                }
+            }
+            reader.endArray();
+        } catch (Exception e) {
+            Log.e(TAG, "无法解析日期 " + key + " 的事件", e);
+            bad++;
+        }
+        return bad;
+    }
+
+    /**
+     * 校验并规范化一条旧记录：缺少日期时使用所在的日期键，描述去除首尾空白。
+     *
+     * @return 规范化后的事件，记录无效时返回 null
+     */
+    static Event normalize(Event event, LocalDate keyDate) {
+        if (event == null) {
+            return null;
+        }
+        int epochDay = event.getEpochDay();
+        if (epochDay == Event.NO_DATE && keyDate != null) {
+            epochDay = (int) keyDate.toEpochDay();
+        }
+        int startMinute = event.getStartMinute();
+        int endMinute = event.getEndMinute();
+        if (epochDay == Event.NO_DATE || startMinute == Event.NO_TIME || endMinute == Event.NO_TIME
+                || endMinute < startMinute) {
+            return null;
+        }
+        String description = event.getDescription() == null ? "" : event.getDescription().trim();
+        return new Event(event.getId(), epochDay, startMinute, endMinute, description);
+    }
+
+    /**
+     * 整批导入事件仓库，等待所有分片都写入磁盘后再记录检查点。旧数据中重复保存的同一事件会被仓库忽略。
+     * 迁移不需要报告时间冲突，因此使用不检测冲突的 importEvents。
+     *
+     * @return 本批实际添加的事件数
+     */
+    private int commit(List<Event> batch, int processedKeys, int badRecords) throws Exception {
+        int added = 0;
+        if (!batch.isEmpty()) {
+            added = repository.importEvents(batch);
+            // flush 等待所有分片中尚未完成的记录，写入失败时抛出异常，检查点不会前进
+            repository.flush().get();
+            batch.clear();
+        }
+        meta.edit()
+                .putInt(KEY_CHECKPOINT, processedKeys)
+                .putInt(KEY_BAD_RECORDS, badRecords)
+                .commit();
+        return added;
+    }
+
+    private static File legacyPrefsFile(Context context) {
+        return new File(new File(context.getApplicationInfo().dataDir, "shared_prefs"), LEGACY_EVENTS_PREFS + ".xml");
+    }
+}
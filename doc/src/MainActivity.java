@@ -37,6 +37,11 @@ public class MainActivity extends AppCompatActivity {
         // 设置布局文件
         setContentView(R.layout.activity_main);
 
+        // 旧数据在后台迁移完成后刷新当前显示的页面
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            LegacyEventsMigrator.setOnMigrationFinishedListener(migrated -> notifyEventAdded());
+        }
+
         // 找到底部导航栏视图
         bottomNavigationView = findViewById(R.id.bottom_navigation);
         // 设置底部导航栏的选中监听器
@@ -53,6 +58,14 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            LegacyEventsMigrator.setOnMigrationFinishedListener(null);
+        }
+    }
+
     // 底部导航栏选中监听器
     private BottomNavigationView.OnNavigationItemSelectedListener navigationItemSelectedListener =
             item -> {
@@ -163,6 +176,9 @@ public class MainActivity extends AppCompatActivity {
         // 打印日志，记录添加事件的信息
         Log.d("MainActivity", "添加事件: " + event);
 
+        // 先保存事件到存储，保证各页面刷新时能读到新事件
+        saveEventDirectly(event);
+
         // 通过FragmentManager找到当前显示的Fragment
         Fragment fragment = getSupportFragmentManager().findFragmentById(R.id.fragment_container);
         // 判断当前Fragment是否为CalendarFragment
@@ -180,39 +196,16 @@ public class MainActivity extends AppCompatActivity {
             // 调用监听器的onEventAdded方法通知今日日程页面添加事件
             eventAddedListener.onEventAdded(event);
         }
-
-        // 直接保存事件到存储
-        saveEventDirectly(event);
     }
 
     /**
-     * 直接将事件保存到SharedPreferences中
+     * 直接将事件保存到事件仓库中
      * @param event 要保存的事件
      */
     private void saveEventDirectly(Event event) {
         try {
-            // 获取SharedPreferences实例，用于存储事件信息
-            SharedPreferences prefs = getSharedPreferences("events_prefs", Context.MODE_PRIVATE);
-            // 获取事件日期的字符串表示，作为存储的键
-            String dateKey = event.getDate().toString();
-
-            // 获取自定义的Gson实例
-            Gson gson = GsonUtils.getGson();
-            // 获取事件列表的类型
-            Type type = new TypeToken<ArrayList<Event>>(){}.getType();
-
-            // 从SharedPreferences中获取该日期的事件列表的JSON字符串
-            String eventJson = prefs.getString(dateKey, "[]");
-            // 将JSON字符串转换为事件列表
-            List<Event> events = gson.fromJson(eventJson, type);
-
-            // 向事件列表中添加新事件
-            events.add(event);
-
-            // 将更新后的事件列表转换为JSON字符串
-            String updatedJson = gson.toJson(events);
-            // 将更新后的JSON字符串保存到SharedPreferences中
-            prefs.edit().putString(dateKey, updatedJson).apply();
+            // 通过事件仓库追加保存事件
+            EventRepository.getInstance(this).addEvent(event);
 
             // 打印日志，记录事件已保存到存储
             Log.d("MainActivity", "事件已直接保存到存储: " + event);
@@ -239,6 +232,21 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * 显示事件搜索页面
+     * 核心函数：用于打开按描述搜索事件的页面，返回时回到原页面
+     */
+    public void showSearchFragment() {
+        // 开启Fragment事务
+        getSupportFragmentManager().beginTransaction()
+                // 替换Fragment容器中的Fragment为SearchFragment
+                .replace(R.id.fragment_container, new SearchFragment())
+                // 将该事务添加到返回栈中
+                .addToBackStack("search")
+                // 提交事务
+                .commit();
+    }
+
     /**
      * 显示指定日期的日程安排页面
      * 核心函数：用于打开指定日期的日程安排页面，并传递日期信息
@@ -0,0 +1,179 @@
+/**
+ * MonthEventCache 类按年月缓存已解析、已过滤的每日事件列表，供日历月视图使用。
+ * 缓存按近似内存占用做 LRU 淘汰；事件仓库发生写入时只失效受影响的月份，
+ * 并在后台预取相邻月份，使来回翻月在预热后不再需要重新加载。
+ */
+public class MonthEventCache implements EventRepository.OnEventsChangedListener {
+    private static final String TAG = "MonthEventCache";
+
+    // 每个事件的固定估算开销（对象头、原始字段、ID 字符串等），单位字节
+    private static final int EVENT_OVERHEAD_BYTES = 120;
+    // 每个有事件的日期的估算开销（映射条目和列表），单位字节
+    private static final int DAY_OVERHEAD_BYTES = 64;
+    // 缓存占用的内存上限，取最大堆内存的 1/64
+    private static final long MAX_BYTES = Runtime.getRuntime().maxMemory() / 64;
+
+    // 单例实例
+    private static MonthEventCache instance;
+
+    // 事件仓库
+    private final EventRepository repository;
+    // 按访问顺序排列的缓存条目，最久未访问的在最前
+    private final LinkedHashMap<YearMonth, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // 用于预取相邻月份的后台线程
+    private final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor();
+    // 当前缓存的估算总占用
+    private long totalBytes = 0;
+    // 失效计数，用于丢弃加载期间已经过期的结果
+    private long invalidationCount = 0;
+
+    /**
+     * 缓存条目，保存一个月的每日事件及其估算占用。
+     */
+    private static class Entry {
+        final Map<LocalDate, List<Event>> eventsByDate;
+        final long bytes;
+
+        Entry(Map<LocalDate, List<Event>> eventsByDate, long bytes) {
+            this.eventsByDate = eventsByDate;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * 获取 MonthEventCache 单例，并注册为事件仓库的变更监听器。
+     *
+     * @param context 上下文
+     * @return MonthEventCache 单例
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public static synchronized MonthEventCache getInstance(Context context) {
+        if (instance == null) {
+            EventRepository repository = EventRepository.getInstance(context);
+            instance = new MonthEventCache(repository);
+            repository.addOnEventsChangedListener(instance);
+        }
+        return instance;
+    }
+
+    private MonthEventCache(EventRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * 核心函数：获取指定月份的每日事件。
+     * 命中缓存时直接返回；未命中时从事件仓库按范围查询并放入缓存。
+     * 同时在后台预取前后两个月。
+     *
+     * @param yearMonth 要获取的年月
+     * @return 日期到有效事件列表的不可变映射
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public Map<LocalDate, List<Event>> getMonth(YearMonth yearMonth) {
+        Map<LocalDate, List<Event>> events = getOrLoad(yearMonth);
+        prefetch(yearMonth.minusMonths(1));
+        prefetch(yearMonth.plusMonths(1));
+        return events;
+    }
+
+    /**
+     * 在后台线程预取指定月份，已缓存时不做任何事。
+     *
+     * @param yearMonth 要预取的年月
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public void prefetch(YearMonth yearMonth) {
+        synchronized (this) {
+            if (entries.containsKey(yearMonth)) {
+                return;
+            }
+        }
+        prefetchExecutor.execute(() -> getOrLoad(yearMonth));
+    }
+
+    /**
+     * 事件仓库发生写入时调用，只失效该日期所在的月份；重复系列变化时清空全部缓存。
+     *
+     * @param date 发生变化的日期，为 null 表示所有日期都可能变化
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    @Override
+    public synchronized void onEventsChanged(LocalDate date) {
+        invalidationCount++;
+        if (date == null) {
+            entries.clear();
+            totalBytes = 0;
+            return;
+        }
+        Entry removed = entries.remove(YearMonth.from(date));
+        if (removed != null) {
+            totalBytes -= removed.bytes;
+        }
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private Map<LocalDate, List<Event>> getOrLoad(YearMonth yearMonth) {
+        long expectedInvalidations;
+        synchronized (this) {
+            Entry entry = entries.get(yearMonth);
+            if (entry != null) {
+                return entry.eventsByDate;
+            }
+            expectedInvalidations = invalidationCount;
+        }
+
+        Entry loaded = load(yearMonth);
+
+        synchronized (this) {
+            // 加载期间可能已被其他线程放入缓存
+            Entry existing = entries.get(yearMonth);
+            if (existing != null) {
+                return existing.eventsByDate;
+            }
+            // 加载期间发生过写入，结果可能已过期，不放入缓存
+            if (invalidationCount != expectedInvalidations) {
+                return loaded.eventsByDate;
+            }
+            entries.put(yearMonth, loaded);
+            totalBytes += loaded.bytes;
+            evictIfNeeded(yearMonth);
+            return loaded.eventsByDate;
+        }
+    }
+
+    /**
+     * 从事件仓库加载一个月的事件并估算占用。
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private Entry load(YearMonth yearMonth) {
+        Map<LocalDate, List<Event>> eventsByDate = new HashMap<>();
+        long bytes = 0;
+
+        for (Map.Entry<LocalDate, List<Event>> day : repository.query(yearMonth.atDay(1), yearMonth.atEndOfMonth()).entrySet()) {
+            for (Event event : day.getValue()) {
+                String description = event.getDescription();
+                bytes += EVENT_OVERHEAD_BYTES + (description == null ? 0 : description.length() * 2L);
+            }
+            eventsByDate.put(day.getKey(), Collections.unmodifiableList(day.getValue()));
+            bytes += DAY_OVERHEAD_BYTES;
+        }
+
+        Log.d(TAG, "已加载 " + yearMonth + "，约 " + bytes + " 字节");
+        return new Entry(Collections.unmodifiableMap(eventsByDate), bytes);
+    }
+
+    /**
+     * 超出内存上限时按 LRU 顺序淘汰，刚放入的月份不会被淘汰。
+     */
+    private void evictIfNeeded(YearMonth justLoaded) {
+        Iterator<Map.Entry<YearMonth, Entry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > MAX_BYTES && iterator.hasNext()) {
+            Map.Entry<YearMonth, Entry> eldest = iterator.next();
+            if (eldest.getKey().equals(justLoaded)) {
+                continue;
+            }
+            totalBytes -= eldest.getValue().bytes;
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * MonthPagerAdapter 类是月历 ViewPager2 的适配器，每一页是一个 MonthView。
+ * 页面视图由 RecyclerView 回收复用；月历模型在低优先级后台线程上构建，
+ * 并按最近使用缓存少量月份，当前页前后的月份会被提前构建，滑动到相邻月份时模型已经就绪。
+ * 所有方法都必须在主线程上调用。
+ */
+@RequiresApi(api = Build.VERSION_CODES.O)
+public class MonthPagerAdapter extends RecyclerView.Adapter<MonthPagerAdapter.MonthHolder> {
+
+    // 第一页对应的月份
+    private static final YearMonth FIRST_MONTH = YearMonth.of(1970, 1);
+    // 总页数，覆盖 1970 年到 2169 年
+    private static final int MONTH_COUNT = 200 * 12;
+    // 缓存的月历模型数量：当前月、前后各一个月，再加上刚刚滑过的几个月
+    private static final int MODEL_CACHE_SIZE = 7;
+    // 只刷新内容、不重新创建页面时使用的 payload
+    private static final Object PAYLOAD_REFRESH = new Object();
+
+    // 月份事件缓存
+    private final MonthEventCache eventCache;
+    // 日期点击和长按的回调
+    private final MonthView.OnDayClickListener onDayClickListener;
+    // 构建月历模型的低优先级后台线程
+    private final ExecutorService modelExecutor = Executors.newSingleThreadExecutor(runnable ->
+            new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "month-model"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // 已构建的月历模型
+    private final LruCache<YearMonth, CalendarMonthModel> models = new LruCache<>(MODEL_CACHE_SIZE);
+    // 正在构建的月份，避免重复提交
+    private final Set<YearMonth> building = new HashSet<>();
+    // 当前绑定了月份的页面
+    private final Set<MonthHolder> boundHolders = new HashSet<>();
+    // 每次刷新时递增，用于丢弃刷新前开始构建的模型
+    private int generation = 0;
+
+    /**
+     * 一个月份页面。
+     */
+    static class MonthHolder extends RecyclerView.ViewHolder {
+        final MonthView monthView;
+        YearMonth month;
+
+        MonthHolder(MonthView monthView) {
+            super(monthView);
+            this.monthView = monthView;
+        }
+    }
+
+    /**
+     * 构造函数。
+     *
+     * @param eventCache         月份事件缓存
+     * @param onDayClickListener 日期点击和长按的回调
+     */
+    public MonthPagerAdapter(MonthEventCache eventCache, MonthView.OnDayClickListener onDayClickListener) {
+        this.eventCache = eventCache;
+        this.onDayClickListener = onDayClickListener;
+        setHasStableIds(true);
+    }
+
+    /**
+     * 获取月份对应的页面位置。
+     *
+     * @param month 月份
+     * @return 页面位置，超出范围时取最近的一页
+     */
+    public static int positionOf(YearMonth month) {
+        long position = ChronoUnit.MONTHS.between(FIRST_MONTH, month);
+        return (int) Math.max(0, Math.min(MONTH_COUNT - 1, position));
+    }
+
+    /**
+     * 获取页面位置对应的月份。
+     *
+     * @param position 页面位置
+     * @return 月份
+     */
+    public static YearMonth monthAt(int position) {
+        return FIRST_MONTH.plusMonths(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return MONTH_COUNT;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @NonNull
+    @Override
+    public MonthHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        MonthView monthView = new MonthView(parent.getContext());
+        monthView.setLayoutParams(new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        monthView.setOnDayClickListener(onDayClickListener);
+        return new MonthHolder(monthView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull MonthHolder holder, int position) {
+        holder.month = monthAt(position);
+        boundHolders.add(holder);
+        CalendarMonthModel model = models.get(holder.month);
+        if (model != null) {
+            holder.monthView.setModel(model);
+        } else {
+            // 回收的页面还显示着其他月份，先清空，避免在模型就绪前显示错误的月份
+            holder.monthView.setModel(null);
+            requestModel(holder.month);
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull MonthHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_REFRESH) && monthAt(position).equals(holder.month)) {
+            // 保留页面上的旧模型，新模型就绪后与之比较，只重绘变化的单元格
+            requestModel(holder.month);
+            return;
+        }
+        onBindViewHolder(holder, position);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull MonthHolder holder) {
+        boundHolders.remove(holder);
+        holder.month = null;
+    }
+
+    /**
+     * 核心函数：提前构建指定月份前后各一个月的模型，模型已缓存或正在构建时不做任何事。
+     *
+     * @param month 当前显示的月份
+     */
+    public void prefetchAround(YearMonth month) {
+        requestModel(month.minusMonths(1));
+        requestModel(month.plusMonths(1));
+    }
+
+    /**
+     * 事件发生变化后调用：丢弃所有缓存的模型，并为当前绑定的页面重新构建。
+     * 只通知已绑定页面的位置，未绑定的月份在下次绑定时自然会重新构建。
+     */
+    public void refresh() {
+        generation++;
+        models.evictAll();
+        building.clear();
+        for (MonthHolder holder : new ArrayList<>(boundHolders)) {
+            if (holder.month != null) {
+                notifyItemChanged(positionOf(holder.month), PAYLOAD_REFRESH);
+            }
+        }
+    }
+
+    /**
+     * 停止后台线程，页面销毁时调用。之后的刷新和预取不再构建模型。
+     */
+    public void shutdown() {
+        modelExecutor.shutdownNow();
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * 在后台线程上构建月份的模型，完成后放入缓存并交给显示该月份的页面。
+     * 适配器关闭后不做任何事。
+     */
+    private void requestModel(YearMonth month) {
+        if (modelExecutor.isShutdown() || models.get(month) != null || !building.add(month)) {
+            return;
+        }
+        int requestGeneration = generation;
+        LocalDate today = LocalDate.now();
+        modelExecutor.execute(() -> {
+            CalendarMonthModel model = CalendarMonthModel.build(month, eventCache.getMonth(month), today);
+            mainHandler.post(() -> {
+                if (requestGeneration != generation || modelExecutor.isShutdown()) {
+                    // 构建期间事件发生了变化，刷新时已经重新提交
+                    return;
+                }
+                building.remove(month);
+                models.put(month, model);
+                for (MonthHolder holder : boundHolders) {
+                    if (month.equals(holder.month)) {
+                        holder.monthView.setModel(model);
+                    }
+                }
+            });
+        });
+    }
+}
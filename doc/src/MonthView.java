@@ -0,0 +1,355 @@
+/**
+ * MonthView 类在一个视图中直接用 Canvas 绘制月历网格（7 列 x 6 行），
+ * 包括日期数字、今天和周末的样式以及事件预览，替代逐个加载 42 个单元格布局。
+ * 显示内容来自后台线程算好的 CalendarMonthModel，换入新模型时只为变化的单元格重建 StaticLayout，
+ * onDraw 中不分配对象；
+ * 点击和长按通过坐标计算命中的日期，无障碍服务通过 ExploreByTouchHelper 看到每个日期的虚拟节点。
+ */
+@RequiresApi(api = Build.VERSION_CODES.O)
+public class MonthView extends View {
+
+    private static final int COLUMNS = CalendarMonthModel.COLUMNS;
+    private static final int ROWS = CalendarMonthModel.ROWS;
+    private static final int CELL_COUNT = CalendarMonthModel.CELL_COUNT;
+    // 日期数字的字符串缓存
+    private static final String[] DAY_LABELS = new String[32];
+
+    static {
+        for (int day = 1; day < DAY_LABELS.length; day++) {
+            DAY_LABELS[day] = String.valueOf(day);
+        }
+    }
+
+    /**
+     * 日期点击和长按的回调。
+     */
+    public interface OnDayClickListener {
+        void onDayClick(LocalDate date);
+
+        void onDayLongClick(LocalDate date);
+    }
+
+    // 当前显示的模型
+    private CalendarMonthModel model;
+
+    private final TextPaint dayNumberPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint eventPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint emptyCellPaint = new Paint();
+    private final Paint gridPaint = new Paint();
+    private final Drawable todayBackground;
+    private final int textColor;
+    private final int weekendColor;
+    private final float cellPadding;
+
+    // 按单元格位置缓存的事件预览，尺寸变化时全部置为无效，模型变化时只清除变化的单元格
+    private final StaticLayout[] previewLayouts = new StaticLayout[CELL_COUNT];
+    private final boolean[] previewLayoutsValid = new boolean[CELL_COUNT];
+    // 单元格尺寸
+    private float cellWidth;
+    private float cellHeight;
+    // 绘制时复用的矩形和字体度量
+    private final Rect cellBounds = new Rect();
+    private final Paint.FontMetrics fontMetrics = new Paint.FontMetrics();
+
+    private final GestureDetector gestureDetector;
+    private final MonthAccessibilityHelper accessibilityHelper;
+    private OnDayClickListener onDayClickListener;
+
+    public MonthView(Context context) {
+        this(context, null);
+    }
+
+    public MonthView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float scaledDensity = getResources().getDisplayMetrics().scaledDensity;
+        float density = getResources().getDisplayMetrics().density;
+
+        textColor = Color.parseColor("#333333");
+        weekendColor = ContextCompat.getColor(context, R.color.weekend_text);
+        todayBackground = ContextCompat.getDrawable(context, R.drawable.bg_calendar_cell_today);
+        cellPadding = 2 * density;
+
+        dayNumberPaint.setTextSize(14 * scaledDensity);
+        dayNumberPaint.setTextAlign(Paint.Align.CENTER);
+        eventPaint.setTextSize(10 * scaledDensity);
+        eventPaint.setColor(Color.parseColor("#555555"));
+        emptyCellPaint.setColor(ContextCompat.getColor(context, R.color.empty_cell_color));
+        gridPaint.setColor(Color.parseColor("#E0E0E0"));
+        gridPaint.setStrokeWidth(1);
+
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onSingleTapUp(MotionEvent e) {
+                LocalDate date = dateAt(e.getX(), e.getY());
+                if (date != null && onDayClickListener != null) {
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                    onDayClickListener.onDayClick(date);
+                    return true;
+                }
+                return false;
+            }
+
+            @Override
+            public void onLongPress(MotionEvent e) {
+                LocalDate date = dateAt(e.getX(), e.getY());
+                if (date != null && onDayClickListener != null) {
+                    performHapticFeedback(HapticFeedbackConstants.LONG_PRESS);
+                    onDayClickListener.onDayLongClick(date);
+                }
+            }
+        });
+
+        accessibilityHelper = new MonthAccessibilityHelper(this);
+        ViewCompat.setAccessibilityDelegate(this, accessibilityHelper);
+    }
+
+    /**
+     * 核心函数：换入新的显示模型。与当前模型比较后只让变化的单元格重建预览布局、刷新无障碍节点，
+     * 例如新增一个事件只会影响一个单元格。
+     *
+     * @param newModel 新的显示模型，为 null 时清空页面，等待模型就绪
+     */
+    public void setModel(CalendarMonthModel newModel) {
+        if (newModel == null) {
+            if (model != null) {
+                model = null;
+                Arrays.fill(previewLayoutsValid, false);
+                Arrays.fill(previewLayouts, null);
+                accessibilityHelper.invalidateRoot();
+                invalidate();
+            }
+            return;
+        }
+        List<Integer> changed = newModel.changedCells(model);
+        boolean sameMonth = model != null && model.getMonth().equals(newModel.getMonth());
+        model = newModel;
+        if (changed.isEmpty()) {
+            return;
+        }
+        for (int cell : changed) {
+            previewLayoutsValid[cell] = false;
+            previewLayouts[cell] = null;
+        }
+        if (sameMonth) {
+            for (int cell : changed) {
+                int day = newModel.dayOfCell(cell);
+                if (day > 0) {
+                    accessibilityHelper.invalidateVirtualView(day);
+                }
+            }
+        } else {
+            accessibilityHelper.invalidateRoot();
+        }
+        invalidate();
+    }
+
+    public CalendarMonthModel getModel() {
+        return model;
+    }
+
+    public void setOnDayClickListener(OnDayClickListener listener) {
+        this.onDayClickListener = listener;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        cellWidth = (float) (w - getPaddingLeft() - getPaddingRight()) / COLUMNS;
+        cellHeight = (float) (h - getPaddingTop() - getPaddingBottom()) / ROWS;
+        Arrays.fill(previewLayoutsValid, false);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (model == null || cellWidth <= 0 || cellHeight <= 0) {
+            return;
+        }
+
+        dayNumberPaint.getFontMetrics(fontMetrics);
+        float numberBaseline = cellPadding - fontMetrics.ascent;
+        float previewTop = numberBaseline + fontMetrics.descent + cellPadding;
+
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            cellRect(cell, cellBounds);
+            int day = model.dayOfCell(cell);
+            if (day == 0) {
+                // 上月和下月的空白单元格
+                canvas.drawRect(cellBounds, emptyCellPaint);
+                continue;
+            }
+
+            if (cell == model.getTodayCell() && todayBackground != null) {
+                todayBackground.setBounds(cellBounds);
+                todayBackground.draw(canvas);
+            }
+
+            // 周日在第 0 列，周六在第 6 列
+            int column = cell % COLUMNS;
+            dayNumberPaint.setColor(column == 0 || column == COLUMNS - 1 ? weekendColor : textColor);
+            canvas.drawText(DAY_LABELS[day], cellBounds.exactCenterX(), cellBounds.top + numberBaseline, dayNumberPaint);
+
+            StaticLayout preview = previewLayout(cell);
+            if (preview != null) {
+                int saveCount = canvas.save();
+                canvas.clipRect(cellBounds);
+                canvas.translate(cellBounds.left + cellPadding, cellBounds.top + previewTop);
+                preview.draw(canvas);
+                canvas.restoreToCount(saveCount);
+            }
+        }
+
+        // 网格线
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        float right = getWidth() - getPaddingRight();
+        float bottom = getHeight() - getPaddingBottom();
+        for (int column = 1; column < COLUMNS; column++) {
+            float x = left + column * cellWidth;
+            canvas.drawLine(x, top, x, bottom, gridPaint);
+        }
+        for (int row = 1; row < ROWS; row++) {
+            float y = top + row * cellHeight;
+            canvas.drawLine(left, y, right, y, gridPaint);
+        }
+    }
+
+    /**
+     * 获取单元格的预览文本布局，只在第一次绘制或内容、尺寸变化后构建。
+     */
+    private StaticLayout previewLayout(int cell) {
+        if (!previewLayoutsValid[cell]) {
+            String text = model.getPreviewText(cell);
+            int width = Math.max(1, (int) (cellWidth - 2 * cellPadding));
+            previewLayouts[cell] = text == null ? null : StaticLayout.Builder
+                    .obtain(text, 0, text.length(), eventPaint, width)
+                    .setIncludePad(false)
+                    .build();
+            previewLayoutsValid[cell] = true;
+        }
+        return previewLayouts[cell];
+    }
+
+    /**
+     * 计算单元格的位置。
+     */
+    private void cellRect(int cell, Rect out) {
+        int row = cell / COLUMNS;
+        int column = cell % COLUMNS;
+        float left = getPaddingLeft() + column * cellWidth;
+        float top = getPaddingTop() + row * cellHeight;
+        out.set(Math.round(left), Math.round(top), Math.round(left + cellWidth), Math.round(top + cellHeight));
+    }
+
+    /**
+     * 核心函数：计算坐标所在单元格的序号，不在网格内时返回 -1。
+     */
+    private int cellAt(float x, float y) {
+        if (cellWidth <= 0 || cellHeight <= 0) {
+            return -1;
+        }
+        int column = (int) ((x - getPaddingLeft()) / cellWidth);
+        int row = (int) ((y - getPaddingTop()) / cellHeight);
+        if (x < getPaddingLeft() || y < getPaddingTop() || column >= COLUMNS || row >= ROWS) {
+            return -1;
+        }
+        return row * COLUMNS + column;
+    }
+
+    /**
+     * 计算坐标所在的日期，落在空白单元格或网格外时返回 null。
+     */
+    private LocalDate dateAt(float x, float y) {
+        int cell = cellAt(x, y);
+        int day = model == null || cell < 0 ? 0 : model.dayOfCell(cell);
+        return day == 0 ? null : model.getMonth().atDay(day);
+    }
+
+    @SuppressLint("ClickableViewAccessibility")
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return gestureDetector.onTouchEvent(event) || super.onTouchEvent(event);
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        return accessibilityHelper.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        return accessibilityHelper.dispatchKeyEvent(event) || super.dispatchKeyEvent(event);
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, @Nullable Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        accessibilityHelper.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+    }
+
+    /**
+     * 为当月的每一天提供一个虚拟无障碍节点，虚拟节点 ID 为日期数字。
+     */
+    private class MonthAccessibilityHelper extends ExploreByTouchHelper {
+
+        MonthAccessibilityHelper(View host) {
+            super(host);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            LocalDate date = dateAt(x, y);
+            return date == null ? INVALID_ID : date.getDayOfMonth();
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            int daysInMonth = model == null ? 0 : model.getDaysInMonth();
+            for (int day = 1; day <= daysInMonth; day++) {
+                virtualViewIds.add(day);
+            }
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, @NonNull AccessibilityNodeInfoCompat node) {
+            if (model == null || virtualViewId < 1 || virtualViewId > model.getDaysInMonth()) {
+                // 月份切换后旧节点可能仍被查询，给出空的占位内容
+                node.setContentDescription("");
+                node.setBoundsInParent(new Rect(0, 0, 1, 1));
+                return;
+            }
+            int cell = model.cellOfDay(virtualViewId);
+            Rect bounds = new Rect();
+            cellRect(cell, bounds);
+            node.setContentDescription(model.getContentDescription(cell));
+            node.setBoundsInParent(bounds);
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_LONG_CLICK);
+            node.setSelected(cell == model.getTodayCell());
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, @Nullable Bundle arguments) {
+            if (model == null || onDayClickListener == null || virtualViewId < 1 || virtualViewId > model.getDaysInMonth()) {
+                return false;
+            }
+            LocalDate date = model.getMonth().atDay(virtualViewId);
+            if (action == AccessibilityNodeInfoCompat.ACTION_CLICK) {
+                onDayClickListener.onDayClick(date);
+                sendEventForVirtualView(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+                return true;
+            }
+            if (action == AccessibilityNodeInfoCompat.ACTION_LONG_CLICK) {
+                onDayClickListener.onDayLongClick(date);
+                sendEventForVirtualView(virtualViewId, AccessibilityEvent.TYPE_VIEW_LONG_CLICKED);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * PlanStreamParser 类从 AI 回复中逐行解析日程方案。
+ * 回复可以分多次追加，每收到一个完整的行就立即解析这一行，不必等待整段回复生成完毕；
+ * 回复中出现的日期对所有事件生效，日期出现在事件之后时，已解析的事件会改用该日期。
+ */
+@RequiresApi(api = Build.VERSION_CODES.O)
+public class PlanStreamParser {
+    private static final String TAG = "PlanStreamParser";
+
+    // 日期格式：yyyy年M月d日 或 yyyy-MM-dd
+    private static final Pattern DATE_PATTERN = Pattern.compile("(\\d{4}年\\d{1,2}月\\d{1,2}日|\\d{4}-\\d{2}-\\d{2})");
+    // 事件格式 - 支持多种时间分隔符，例如 08:00-08:30: 事件
+    private static final Pattern EVENT_PATTERN = Pattern.compile(
+            "(\\d{1,2})[:：](\\d{2})\\s*[-~—]\\s*(\\d{1,2})[:：](\\d{2})\\s*[:：]?\\s*(.+)");
+    // 没有冒号的时间格式，例如 0800-0930 事件
+    private static final Pattern ALT_EVENT_PATTERN = Pattern.compile(
+            "(\\d{2})(\\d{2})\\s*[-~—]\\s*(\\d{2})(\\d{2})\\s*[:：]?\\s*(.+)");
+
+    // 尚未遇到换行的最后一行
+    private final StringBuilder partialLine = new StringBuilder();
+    // 已追加的完整回复
+    private final StringBuilder text = new StringBuilder();
+    // 已解析的事件
+    private final List<Event> events = new ArrayList<>();
+    // 事件所在日期，回复中没有日期时为当天
+    private LocalDate date = LocalDate.now();
+    // 是否已经从回复中找到日期
+    private boolean dateFound;
+    // 回复中的日期无法解析
+    private boolean dateError;
+
+    /**
+     * 核心函数：追加一段回复，解析其中已经完整的行。
+     *
+     * @param delta 新收到的文本
+     * @return 事件列表有变化时返回 true
+     */
+    public boolean append(CharSequence delta) {
+        text.append(delta);
+        boolean changed = false;
+        for (int i = 0; i < delta.length(); i++) {
+            char c = delta.charAt(i);
+            if (c == '\n') {
+                changed |= parseLine(partialLine.toString());
+                partialLine.setLength(0);
+            } else {
+                partialLine.append(c);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 回复结束，解析最后一行。
+     *
+     * @return 事件列表有变化时返回 true
+     */
+    public boolean finish() {
+        if (partialLine.length() == 0) {
+            return false;
+        }
+        boolean changed = parseLine(partialLine.toString());
+        partialLine.setLength(0);
+        return changed;
+    }
+
+    /**
+     * 获取已追加的完整回复。
+     */
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * 获取已解析的事件。
+     *
+     * @return 事件列表的副本
+     */
+    public List<Event> getEvents() {
+        return new ArrayList<>(events);
+    }
+
+    /**
+     * 回复中的日期是否无法解析。
+     */
+    public boolean hasDateError() {
+        return dateError;
+    }
+
+    private boolean parseLine(String line) {
+        boolean changed = false;
+        if (!dateFound) {
+            changed = parseDate(line);
+        }
+
+        Matcher matcher = EVENT_PATTERN.matcher(line);
+        if (!matcher.find()) {
+            matcher = ALT_EVENT_PATTERN.matcher(line);
+            if (!matcher.find()) {
+                return changed;
+            }
+        }
+        try {
+            LocalTime startTime = LocalTime.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            LocalTime endTime = LocalTime.of(Integer.parseInt(matcher.group(3)), Integer.parseInt(matcher.group(4)));
+            Event event = new Event(date, startTime, endTime, matcher.group(5).trim());
+            events.add(event);
+            Log.d(TAG, "解析到事件: " + event);
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "事件解析错误: " + line, e);
+            return changed;
+        }
+    }
+
+    /**
+     * 查找行中的日期，找到后已解析的事件改用该日期。
+     *
+     * @return 已解析的事件被改动时返回 true
+     */
+    private boolean parseDate(String line) {
+        Matcher dateMatcher = DATE_PATTERN.matcher(line);
+        if (!dateMatcher.find()) {
+            return false;
+        }
+        // 与整段解析一致，只采用回复中的第一个日期
+        dateFound = true;
+        String dateStr = dateMatcher.group();
+        try {
+            date = dateStr.contains("年")
+                    ? LocalDate.parse(dateStr, DateTimeFormatter.ofPattern("yyyy年M月d日"))
+                    : LocalDate.parse(dateStr);
+            Log.d(TAG, "从响应中解析到日期: " + date);
+        } catch (DateTimeParseException e) {
+            Log.e(TAG, "日期解析错误: " + e.getMessage());
+            dateError = true;
+            return false;
+        }
+
+        if (events.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+            events.set(i, new Event(date, event.getStartTimeAsLocalTime(), event.getEndTimeAsLocalTime(),
+                    event.getDescription()));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ * RecurrenceRule 类描述一个重复日程的规则：每天、每周或工作日重复，
+ * 可选的重复间隔、截止日期和重复次数，以及被单独删除的例外日期。
+ * 规则本身只存储一次，具体的日程实例在查询时按需展开，不会被逐个保存。
+ * 规则不可变，添加例外日期会返回一个新的规则对象。
+ */
+public class RecurrenceRule {
+
+    /**
+     * 重复频率。
+     */
+    public enum Frequency {
+        // 每天
+        DAILY,
+        // 每周同一天
+        WEEKLY,
+        // 每个工作日（周一到周五）
+        WEEKDAYS
+    }
+
+    // 没有截止日期时的占位值
+    public static final int NO_UNTIL = Integer.MAX_VALUE;
+    // 不限次数时的占位值
+    public static final int NO_COUNT = 0;
+
+    // 重复频率
+    private final Frequency frequency;
+    // 重复间隔，例如 2 表示每隔一天或每隔一周
+    private final int interval;
+    // 截止日期的纪元日（包含）
+    private final int untilEpochDay;
+    // 最多重复的次数
+    private final int count;
+    // 被单独删除的实例日期（纪元日），升序
+    private final int[] exceptions;
+
+    /**
+     * 构造函数。
+     *
+     * @param frequency     重复频率
+     * @param interval      重复间隔，至少为 1；工作日重复时忽略
+     * @param untilEpochDay 截止日期的纪元日（包含），不限时为 NO_UNTIL
+     * @param count         最多重复次数，不限时为 NO_COUNT
+     */
+    public RecurrenceRule(Frequency frequency, int interval, int untilEpochDay, int count) {
+        this(frequency, interval, untilEpochDay, count, new int[0]);
+    }
+
+    private RecurrenceRule(Frequency frequency, int interval, int untilEpochDay, int count, int[] exceptions) {
+        this.frequency = frequency;
+        this.interval = Math.max(1, interval);
+        this.untilEpochDay = untilEpochDay;
+        this.count = Math.max(NO_COUNT, count);
+        this.exceptions = exceptions;
+    }
+
+    /**
+     * 创建一个不限次数、不限截止日期的规则。
+     *
+     * @param frequency 重复频率
+     * @return 重复规则
+     */
+    public static RecurrenceRule of(Frequency frequency) {
+        return new RecurrenceRule(frequency, 1, NO_UNTIL, NO_COUNT);
+    }
+
+    /**
+     * 从存储中还原规则。
+     */
+    static RecurrenceRule restore(Frequency frequency, int interval, int untilEpochDay, int count, int[] exceptions) {
+        int[] sorted = exceptions.clone();
+        Arrays.sort(sorted);
+        return new RecurrenceRule(frequency, interval, untilEpochDay, count, sorted);
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public int getUntilEpochDay() {
+        return untilEpochDay;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * 获取例外日期的副本。
+     *
+     * @return 升序的例外日期（纪元日）
+     */
+    public int[] getExceptions() {
+        return exceptions.clone();
+    }
+
+    /**
+     * 返回添加了一个例外日期的新规则。
+     *
+     * @param epochDay 要排除的实例日期
+     * @return 新的规则，日期已是例外时返回自身
+     */
+    public RecurrenceRule withException(int epochDay) {
+        int index = Arrays.binarySearch(exceptions, epochDay);
+        if (index >= 0) {
+            return this;
+        }
+        int insertAt = -index - 1;
+        int[] updated = new int[exceptions.length + 1];
+        System.arraycopy(exceptions, 0, updated, 0, insertAt);
+        updated[insertAt] = epochDay;
+        System.arraycopy(exceptions, insertAt, updated, insertAt + 1, exceptions.length - insertAt);
+        return new RecurrenceRule(frequency, interval, untilEpochDay, count, updated);
+    }
+
+    /**
+     * 核心函数：计算在 [fromEpochDay, toEpochDay] 范围内的所有实例日期。
+     * 直接从第一个不早于 fromEpochDay 的实例开始计算，不会遍历范围之前的历史实例。
+     *
+     * @param startEpochDay 系列第一个实例的日期
+     * @param fromEpochDay  查询起始日期（包含）
+     * @param toEpochDay    查询结束日期（包含）
+     * @return 升序的实例日期列表
+     */
+    public List<Integer> occurrencesBetween(int startEpochDay, int fromEpochDay, int toEpochDay) {
+        List<Integer> result = new ArrayList<>();
+        int last = Math.min(toEpochDay, lastOccurrence(startEpochDay));
+        int first = Math.max(fromEpochDay, startEpochDay);
+        if (first > last) {
+            return result;
+        }
+
+        if (frequency == Frequency.WEEKDAYS) {
+            for (int day = first; day <= last; day++) {
+                if (isWeekday(day) && !isException(day)) {
+                    result.add(day);
+                }
+            }
+            return result;
+        }
+
+        int step = stepDays();
+        // 第一个不早于 first 的实例
+        int offset = first - startEpochDay;
+        int day = startEpochDay + ((offset + step - 1) / step) * step;
+        for (; day <= last; day += step) {
+            if (!isException(day)) {
+                result.add(day);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 判断指定日期是否为该系列的一个实例（不含例外日期）。
+     *
+     * @param startEpochDay 系列第一个实例的日期
+     * @param epochDay      要判断的日期
+     * @return 是实例时返回 true
+     */
+    public boolean occursOn(int startEpochDay, int epochDay) {
+        return !occurrencesBetween(startEpochDay, epochDay, epochDay).isEmpty();
+    }
+
+    /**
+     * 计算系列最后一个实例的日期，同时考虑截止日期和重复次数。
+     */
+    private int lastOccurrence(int startEpochDay) {
+        int last = untilEpochDay;
+        if (count != NO_COUNT) {
+            int byCount;
+            if (frequency == Frequency.WEEKDAYS) {
+                byCount = nthWeekday(startEpochDay, count);
+            } else {
+                long value = startEpochDay + (long) (count - 1) * stepDays();
+                byCount = (int) Math.min(value, Integer.MAX_VALUE);
+            }
+            last = Math.min(last, byCount);
+        }
+        return last;
+    }
+
+    /**
+     * 从 startEpochDay 开始（含）第 n 个工作日的日期。
+     */
+    private static int nthWeekday(int startEpochDay, int n) {
+        int day = startEpochDay;
+        while (!isWeekday(day)) {
+            day++;
+        }
+        int remaining = n - 1;
+        // 先按整周跳过，每周 5 个工作日
+        day += (remaining / 5) * 7;
+        remaining %= 5;
+        while (remaining > 0) {
+            day++;
+            if (isWeekday(day)) {
+                remaining--;
+            }
+        }
+        return day;
+    }
+
+    private int stepDays() {
+        return frequency == Frequency.WEEKLY ? 7 * interval : interval;
+    }
+
+    private boolean isException(int epochDay) {
+        return exceptions.length > 0 && Arrays.binarySearch(exceptions, epochDay) >= 0;
+    }
+
+    /**
+     * 判断纪元日是否为工作日。1970-01-01 是星期四。
+     */
+    private static boolean isWeekday(int epochDay) {
+        int dayOfWeek = Math.floorMod(epochDay + 3, 7); // 0 为周一，6 为周日
+        return dayOfWeek < 5;
+    }
+
+    /**
+     * 返回规则的中文描述，用于界面显示。
+     *
+     * @return 规则描述
+     */
+    @Override
+    public String toString() {
+        switch (frequency) {
+            case DAILY:
+                return interval == 1 ? "每天" : "每" + interval + "天";
+            case WEEKLY:
+                return interval == 1 ? "每周" : "每" + interval + "周";
+            default:
+                return "工作日";
+        }
+    }
+}
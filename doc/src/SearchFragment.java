@@ -0,0 +1,201 @@
+/**
+ * SearchFragment 类提供按事件描述搜索日程的界面。
+ * 输入停顿后在全文索引中查询，结果按日期排序，滚动到底部时加载下一页。
+ * 第一次查询需要从磁盘加载所有月份的分片，因此查询在后台线程上执行，结果再交回主线程显示。
+ * 点击结果跳转到该日期的日程页面。
+ */
+public class SearchFragment extends Fragment {
+    private static final String TAG = "SearchFragment";
+
+    // 每页加载的结果数
+    private static final int PAGE_SIZE = 50;
+    // 输入停顿多久后开始查询（毫秒）
+    private static final long SEARCH_DELAY_MS = 200;
+
+    // 搜索输入框
+    private EditText searchEditText;
+    // 结果列表
+    private ListView resultsListView;
+    // 没有结果时显示的提示
+    private TextView emptyTextView;
+    // 结果列表的适配器
+    private ArrayAdapter<String> resultsAdapter;
+
+    // 已加载的命中事件
+    private final List<Event> results = new ArrayList<>();
+    // 当前查询文本
+    private String currentQuery = "";
+    // 是否还有下一页
+    private boolean hasMore = false;
+    // 是否有一页正在查询
+    private boolean loading = false;
+    // 查询的代数，查询文本变化后递增，旧查询返回的结果据此丢弃
+    private int generation = 0;
+
+    // 执行查询的后台线程
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+
+    // 用于延迟查询的 Handler
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    // 延迟执行的查询任务
+    private final Runnable searchRunnable = this::runSearch;
+
+    /**
+     * 核心函数：创建并返回搜索页面的视图。
+     *
+     * @param inflater           用于将布局文件转换为视图的 LayoutInflater
+     * @param container          父视图组
+     * @param savedInstanceState 保存的实例状态
+     * @return 创建的视图
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.fragment_search, container, false);
+
+        searchEditText = view.findViewById(R.id.search_input);
+        resultsListView = view.findViewById(R.id.search_results);
+        emptyTextView = view.findViewById(R.id.search_empty);
+
+        resultsAdapter = new ArrayAdapter<>(requireContext(), android.R.layout.simple_list_item_1, new ArrayList<>());
+        resultsListView.setAdapter(resultsAdapter);
+        resultsListView.setEmptyView(emptyTextView);
+
+        // 输入变化后延迟查询，避免每输入一个字都查询一次
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                handler.removeCallbacks(searchRunnable);
+                handler.postDelayed(searchRunnable, SEARCH_DELAY_MS);
+            }
+        });
+
+        // 滚动到接近底部时加载下一页
+        resultsListView.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                if (hasMore && totalItemCount > 0 && firstVisibleItem + visibleItemCount >= totalItemCount - 5) {
+                    loadNextPage();
+                }
+            }
+        });
+
+        // 点击结果跳转到对应日期的日程页面
+        resultsListView.setOnItemClickListener((parent, itemView, position, id) -> {
+            Event event = results.get(position);
+            if (getActivity() instanceof MainActivity && event.getDate() != null) {
+                ((MainActivity) getActivity()).showDayScheduleFragment(event.getDate());
+            }
+        });
+
+        // 返回按钮
+        ImageView backButton = view.findViewById(R.id.back_button);
+        backButton.setOnClickListener(v -> getParentFragmentManager().popBackStack());
+
+        return view;
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        handler.removeCallbacks(searchRunnable);
+        // 视图销毁后返回的结果不再显示
+        generation++;
+        loading = false;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        searchExecutor.shutdownNow();
+    }
+
+    /**
+     * 用输入框中的文本重新查询第一页。
+     */
+    private void runSearch() {
+        if (searchEditText == null) return;
+        currentQuery = searchEditText.getText().toString().trim();
+        generation++;
+        loading = false;
+        results.clear();
+        resultsAdapter.clear();
+        hasMore = !currentQuery.isEmpty();
+        emptyTextView.setText(currentQuery.isEmpty() ? "输入关键词搜索日程" : "没有找到相关日程");
+        if (hasMore) {
+            loadNextPage();
+        }
+    }
+
+    /**
+     * 核心函数：在后台线程上查询当前查询的下一页结果，完成后在主线程上追加到列表。
+     * 同一时间只有一页在查询；查询期间查询文本变化时，返回的结果会被丢弃。
+     */
+    private void loadNextPage() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O || loading || !isAdded()) return;
+        loading = true;
+        EventRepository repository = EventRepository.getInstance(requireActivity());
+        String query = currentQuery;
+        int offset = results.size();
+        int requestGeneration = generation;
+        searchExecutor.execute(() -> {
+            List<Event> page;
+            List<String> lines = new ArrayList<>();
+            try {
+                page = repository.search(query, offset, PAGE_SIZE);
+                for (Event event : page) {
+                    lines.add(formatResult(event));
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "搜索失败: " + query, e);
+                page = null;
+            }
+            List<Event> loaded = page;
+            handler.post(() -> showPage(requestGeneration, loaded, lines));
+        });
+    }
+
+    /**
+     * 在主线程上显示一页查询结果，查询失败时 page 为 null。
+     */
+    private void showPage(int requestGeneration, List<Event> page, List<String> lines) {
+        if (requestGeneration != generation || resultsAdapter == null) {
+            return;
+        }
+        loading = false;
+        if (page == null) {
+            hasMore = false;
+            emptyTextView.setText("搜索失败，请重试");
+            return;
+        }
+        hasMore = page.size() == PAGE_SIZE;
+        results.addAll(page);
+        resultsAdapter.addAll(lines);
+        Log.d(TAG, "搜索 \"" + currentQuery + "\" 已加载 " + results.size() + " 条结果");
+    }
+
+    /**
+     * 将命中事件格式化为 "yyyy-MM-dd HH:mm-HH:mm 描述" 的形式，重复事件附带重复规则。
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private static String formatResult(Event event) {
+        String text = EventTypeAdapter.formatDate(event.getDate()) + " " + event;
+        if (event.getRecurrence() != null) {
+            text += "（" + event.getRecurrence() + "）";
+        }
+        return text;
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * SingleFlight 类合并相同键的并发请求。
+ * 同一个键在执行中时，后来的调用不会再次执行任务，而是等待并共享同一个结果；
+ * 任务完成后键被移除，之后的调用重新执行。
+ * executeLatest 在发起新键的请求时取消其他仍在执行的请求，适合只关心最新输入的场景。
+ * 取消时除了中断执行任务的线程，还会触发任务的 CancellationSignal，任务据此中止阻塞中的网络请求。
+ *
+ * @param <K> 请求键的类型
+ * @param <V> 结果的类型
+ */
+public class SingleFlight<K, V> {
+    private static final String TAG = "SingleFlight";
+
+    // 执行任务的线程池
+    private final ExecutorService executor;
+    // 执行中的请求
+    private final Map<K, Call<V>> calls = new HashMap<>();
+
+    /**
+     * 可以响应取消的请求任务。
+     *
+     * @param <V> 结果的类型
+     */
+    public interface Task<V> {
+        /**
+         * 执行请求。
+         *
+         * @param signal 请求被取消时触发的信号
+         * @return 请求结果
+         * @throws Exception 请求失败
+         */
+        V call(CancellationSignal signal) throws Exception;
+    }
+
+    /**
+     * 一个执行中的请求。
+     */
+    private static class Call<V> {
+        // 所有等待者共享的结果
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        // 请求被取消时触发，通知任务中止阻塞的操作
+        final CancellationSignal signal = new CancellationSignal();
+        // 线程池中的任务，用于取消
+        Future<?> task;
+    }
+
+    /**
+     * 构造函数。
+     *
+     * @param executor 执行任务的线程池
+     */
+    public SingleFlight(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 核心函数：执行请求，相同键的请求正在执行时直接共享其结果。
+     * 返回的 CompletableFuture 由所有等待者共享，调用方不应取消它。
+     *
+     * @param key  请求键
+     * @param task 请求任务
+     * @return 请求结果
+     */
+    public synchronized CompletableFuture<V> execute(K key, Task<V> task) {
+        Call<V> existing = calls.get(key);
+        if (existing != null) {
+            Log.d(TAG, "合并执行中的请求: " + key);
+            return existing.result;
+        }
+
+        Call<V> call = new Call<>();
+        calls.put(key, call);
+        call.task = executor.submit(() -> {
+            try {
+                V value = task.call(call.signal);
+                finish(key, call);
+                call.result.complete(value);
+            } catch (Throwable e) {
+                finish(key, call);
+                call.result.completeExceptionally(e);
+            }
+        });
+        return call.result;
+    }
+
+    /**
+     * 执行请求，并取消其他键的执行中请求。被取消请求的等待者收到 CancellationException。
+     *
+     * @param key  请求键
+     * @param task 请求任务
+     * @return 请求结果
+     */
+    public synchronized CompletableFuture<V> executeLatest(K key, Task<V> task) {
+        Iterator<Map.Entry<K, Call<V>>> iterator = calls.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, Call<V>> entry = iterator.next();
+            if (!entry.getKey().equals(key)) {
+                Log.d(TAG, "取消被替代的请求: " + entry.getKey());
+                entry.getValue().signal.cancel();
+                entry.getValue().task.cancel(true);
+                entry.getValue().result.cancel(false);
+                iterator.remove();
+            }
+        }
+        return execute(key, task);
+    }
+
+    /**
+     * 请求结束后移除键，已被取消并替换的请求不影响新的请求。
+     */
+    private synchronized void finish(K key, Call<V> call) {
+        if (calls.get(key) == call) {
+            calls.remove(key);
+        }
+    }
+}
@@ -10,9 +10,9 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
 
     private RecyclerView eventsRecyclerView; // 用于显示事件列表的 RecyclerView
     private EventAdapter eventAdapter; // RecyclerView 的适配器
-    private List<Event> eventsList = new ArrayList<>(); // 存储事件的列表
 
     private ExecutorService executorService; // 线程池，用于执行异步任务
+    private BlueLmClient aiClient; // AI 网关客户端
     private static final int AI_ADVICE_REQUEST_CODE = 1001; // AI 建议请求的代码
 
     private TextView tasksRemaining; // 显示剩余任务数量的文本视图
@@ -22,11 +22,21 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
     private TextView aiAdviceText; // 显示 AI 建议的文本视图
     private ImageButton refreshAdviceBtn; // 刷新 AI 建议的按钮
     private ImageView addEventBtn; // 添加事件的按钮
+    private ImageView searchBtn; // 搜索事件的按钮
 
     private static final String PREFS_ADVICE = "advice_prefs"; // 存储 AI 建议的共享偏好文件名
     private static final String KEY_LAST_ADVICE = "last_advice"; // 存储最后一次 AI 建议的键
     private static final String KEY_LAST_ADVICE_DATE = "last_advice_date"; // 存储最后一次 AI 建议日期的键
     private static final String KEY_LAST_ADVICE_DATA = "last_advice_data"; // 存储最后一次 AI 建议原始数据的键
+    private static final long ADVICE_CACHE_TTL_MS = 24 * 60 * 60 * 1000L; // 日程数据相同时 AI 建议的缓存有效期
+
+    // AI 建议请求按提示内容合并：短时间内多次触发只发出一次网关请求，日程数据变化后旧的请求被取消并断开连接；
+    // 与 Fragment 实例无关，视图重建后仍能接上执行中的请求
+    private static final SingleFlight<String, String> ADVICE_FLIGHT = new SingleFlight<>(createAdviceExecutor());
+
+    private static final int FREE_SLOT_WINDOW_START = 8 * 60; // 空闲时段查找窗口的开始时间 08:00
+    private static final int FREE_SLOT_WINDOW_END = 22 * 60; // 空闲时段查找窗口的结束时间 22:00
+    private static final int FREE_SLOT_MIN_MINUTES = 45; // 空闲时段的最短时长
 
     /**
      * 核心函数：创建并返回该 Fragment 的视图。
@@ -45,6 +55,7 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
         View view = inflater.inflate(R.layout.fragment_today, container, false);
         // 初始化线程池，用于执行异步任务
         executorService = Executors.newSingleThreadExecutor();
+        aiClient = BlueLmClient.getInstance(requireContext()); // 获取 AI 网关客户端
         // 初始化新组件
         tasksRemaining = view.findViewById(R.id.tasks_remaining); // 查找显示剩余任务数量的文本视图
         tasksCompleted = view.findViewById(R.id.tasks_completed); // 查找显示已完成任务数量的文本视图
@@ -53,6 +64,7 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
         aiAdviceText = view.findViewById(R.id.ai_advice_text); // 查找显示 AI 建议的文本视图
         refreshAdviceBtn = view.findViewById(R.id.refresh_advice_btn); // 查找刷新 AI 建议的按钮
         addEventBtn = view.findViewById(R.id.add_event_btn); // 查找添加事件的按钮
+        searchBtn = view.findViewById(R.id.search_btn); // 查找搜索事件的按钮
 
         // 初始化视图
         eventsRecyclerView = view.findViewById(R.id.events_recycler_view); // 查找用于显示事件列表的 RecyclerView
@@ -61,7 +73,7 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
 
         // 设置 RecyclerView
         eventsRecyclerView.setLayoutManager(new LinearLayoutManager(getContext())); // 设置 RecyclerView 的布局管理器
-        eventAdapter = new EventAdapter(eventsList, this); // 创建 RecyclerView 的适配器
+        eventAdapter = new EventAdapter(new ArrayList<>(), this, "今日无日程安排"); // 创建 RecyclerView 的适配器
         eventsRecyclerView.setAdapter(eventAdapter); // 为 RecyclerView 设置适配器
 
         // 设置添加事件按钮点击事件
@@ -75,6 +87,13 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
             }
         });
 
+        // 设置搜索按钮点击事件
+        searchBtn.setOnClickListener(v -> {
+            if (getActivity() instanceof MainActivity) {
+                ((MainActivity) getActivity()).showSearchFragment();
+            }
+        });
+
         // 设置刷新建议按钮点击事件
         refreshAdviceBtn.setOnClickListener(v -> refreshAdvice());
 
@@ -133,16 +152,24 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
                 // 2. 构建 AI 请求提示
                 String prompt = "请根据我最近 7 天的日程安排为我提供一些建议。以下是我的日程数据：\n\n" + scheduleData;
 
-                // 3. 发送 AI 请求
-                String advice = getAIAdvice(prompt);
-
-                // 4. 更新 UI 并永久化存储结果
-                requireActivity().runOnUiThread(() -> {
-                    // 设置 AI 建议文本
-                    aiAdviceText.setText(advice);
-                    // 保存建议和日程数据
-                    saveAdvice(advice, scheduleData);
-                });
+                // 3. 发送 AI 请求，相同提示的请求正在执行时直接等待其结果
+                ADVICE_FLIGHT.executeLatest(prompt, signal -> getAIAdvice(prompt, signal)).whenComplete((advice, error) ->
+                        // 4. 更新 UI 并永久化存储结果
+                        new Handler(Looper.getMainLooper()).post(() -> {
+                            if (!isAdded() || error instanceof CancellationException) {
+                                // 视图已销毁，或请求已被更新的日程数据替代
+                                return;
+                            }
+                            if (error != null) {
+                                aiAdviceText.setText("获取建议失败: " + error.getMessage());
+                                Log.e("TodayFragment", "获取 AI 建议失败", error);
+                                return;
+                            }
+                            // 设置 AI 建议文本
+                            aiAdviceText.setText(advice);
+                            // 保存建议和日程数据
+                            saveAdvice(advice, scheduleData);
+                        }));
             } catch (Exception e) {
                 // 处理异常，更新 UI 显示错误信息
                 requireActivity().runOnUiThread(() -> {
@@ -157,32 +184,42 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
      * 发送 AI 请求，获取 AI 建议。
      *
      * @param prompt AI 请求的提示信息
+     * @param signal 请求被新的日程数据替代时触发的取消信号
      * @return AI 给出的建议
+     * @throws IOException 请求失败或被取消，由调用方显示错误信息，失败信息不会被当作建议保存
      */
-    private String getAIAdvice(String prompt) {
-        try {
-            // 创建消息列表
-            AIFragment aiFragment = new AIFragment();
-            List<Map<String, String>> messages = new ArrayList<>();
-
-            // 系统提示
-            Map<String, String> systemMessage = new HashMap<>();
-            systemMessage.put("role", "system");
-            systemMessage.put("content", "你是一个专业的日程管理助手，请根据用户提供的最近 7 天日程数据，提供专业、简洁、实用的建议。建议应包含时间管理、效率提升、健康提醒等方面。");
-            messages.add(systemMessage);
-
-            // 用户请求
-            Map<String, String> userMessage = new HashMap<>();
-            userMessage.put("role", "user");
-            userMessage.put("content", prompt);
-            messages.add(userMessage);
-
-            // 发送请求 - 这里使用 AIFragment 中的请求逻辑
-            return aiFragment.callBlueHeartAIForAdvice(messages);
-        } catch (Exception e) {
-            // 处理异常，返回错误信息
-            return "获取建议时出错: " + e.getMessage();
-        }
+    private String getAIAdvice(String prompt, CancellationSignal signal) throws IOException {
+        // 创建消息列表
+        List<Map<String, String>> messages = new ArrayList<>();
+
+        // 系统提示
+        Map<String, String> systemMessage = new HashMap<>();
+        systemMessage.put("role", "system");
+        systemMessage.put("content", "你是一个专业的日程管理助手，请根据用户提供的最近 7 天日程数据，提供专业、简洁、实用的建议。建议应包含时间管理、效率提升、健康提醒等方面。");
+        messages.add(systemMessage);
+
+        // 用户请求
+        Map<String, String> userMessage = new HashMap<>();
+        userMessage.put("role", "user");
+        userMessage.put("content", prompt);
+        messages.add(userMessage);
+
+        // 发送请求，与 AI 对话共用同一个网关客户端，每次建议使用新的会话ID；
+        // 日程数据与上次完全相同时直接使用缓存的建议。建议请求由所有等待者共享，慢请求时发出对冲请求
+        return aiClient.complete(messages, UUID.randomUUID().toString(), ADVICE_CACHE_TTL_MS, true, signal);
+    }
+
+    /**
+     * 创建执行 AI 建议请求的线程池。旧的请求会被取消，同时执行的请求很少，最多使用 2 个线程，
+     * 空闲 30 秒后线程退出，线程池为所有 TodayFragment 实例共享，不需要关闭。
+     *
+     * @return 线程池
+     */
+    private static ExecutorService createAdviceExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> new Thread(runnable, "ai-advice"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     /**
@@ -211,10 +248,12 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
         DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
         LocalDate today = LocalDate.now();
+        // 一次性查询最近 7 天的事件
+        NavigableMap<LocalDate, List<Event>> recentEvents = loadEventsInRange(today.minusDays(6), today);
 
         for (int i = 6; i >= 0; i--) {
             LocalDate date = today.minusDays(i);
-            List<Event> events = loadEventsForDate(date);
+            List<Event> events = recentEvents.getOrDefault(date, Collections.emptyList());
 
             data.append(date.format(dateFormatter)).append(":\n");
 
@@ -231,6 +270,14 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
             data.append("\n");
         }
 
+        // 附上未来 7 天的空闲时段，便于 AI 给出可执行的安排建议
+        List<FreeSlotFinder.FreeSlot> freeSlots = new FreeSlotFinder(EventRepository.getInstance(requireActivity()))
+                .findFreeSlots(today, today.plusDays(6), FREE_SLOT_WINDOW_START, FREE_SLOT_WINDOW_END, FREE_SLOT_MIN_MINUTES);
+        if (!freeSlots.isEmpty()) {
+            data.append("未来 7 天的空闲时段（08:00-22:00，不少于 45 分钟）:\n")
+                    .append(FreeSlotFinder.formatSlots(freeSlots));
+        }
+
         return data.toString();
     }
 
@@ -253,7 +300,9 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
     }
 
     /**
-     * 检查是否需要刷新 AI 建议，如果需要则根据情况重新生成建议或获取新建议。
+     * 检查是否需要刷新 AI 建议，如果建议不是今天生成的则获取新建议。
+     * 与 loadCachedAdvice 走同一条路径：提示都由 fetchAIAdvice 在同一个线程上按当前日程数据构建，
+     * 同时触发的多次刷新因此得到相同的提示，只发出一次网关请求。
      */
     @RequiresApi(api = Build.VERSION_CODES.O)
     public void refreshAdviceIfNeeded() {
@@ -264,13 +313,7 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
         LocalDate today = LocalDate.now();
 
         if (!today.toString().equals(lastDate)) {
-            // 如果数据存在，使用缓存数据重新生成建议（避免重复获取数据）
-            String cachedData = prefs.getString(KEY_LAST_ADVICE_DATA, "");
-            if (!cachedData.isEmpty()) {
-                generateAdviceFromCachedData(cachedData);
-            } else {
-                fetchAIAdvice();
-            }
+            fetchAIAdvice();
         }
     }
 
@@ -325,43 +368,6 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
         Log.d("TodayFragment", "已设置每日刷新: " + tomorrowMidnight);
     }
 
-    /**
-     * 使用缓存的日程数据重新生成 AI 建议。
-     *
-     * @param scheduleData 缓存的日程数据
-     */
-    @RequiresApi(api = Build.VERSION_CODES.O)
-    private void generateAdviceFromCachedData(String scheduleData) {
-        // 设置提示文本
-        aiAdviceText.setText("正在重新生成建议...");
-
-        // 在线程池中执行异步任务
-        executorService.execute(() -> {
-            try {
-                // 使用缓存数据生成新建议
-                String prompt = "请根据我最近 7 天的日程安排为我提供一些建议。以下是我的日程数据：\n\n" + scheduleData;
-                String advice = getAIAdvice(prompt);
-
-                // 更新 UI
-                requireActivity().runOnUiThread(() -> {
-                    aiAdviceText.setText(advice);
-                    // 更新建议但保留原始数据
-                    SharedPreferences prefs = requireContext().getSharedPreferences(PREFS_ADVICE, Context.MODE_PRIVATE);
-                    prefs.edit()
-                            .putString(KEY_LAST_ADVICE, advice)
-                            .putString(KEY_LAST_ADVICE_DATE, LocalDate.now().toString())
-                            .apply();
-                });
-            } catch (Exception e) {
-                // 处理异常，更新 UI 显示错误信息
-                requireActivity().runOnUiThread(() -> {
-                    aiAdviceText.setText("重新生成建议失败: " + e.getMessage());
-                });
-                Log.e("TodayFragment", "重新生成建议失败", e);
-            }
-        });
-    }
-
     /**
      * 刷新 AI 建议，调用 fetchAIAdvice 方法重新获取建议。
      */
@@ -399,10 +405,18 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
                 return false;
             }
 
+            @Override
+            public int getSwipeDirs(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder viewHolder) {
+                // 空列表提示行不能滑动删除
+                if (viewHolder.getItemViewType() == EventAdapter.TYPE_EMPTY) return 0;
+                return super.getSwipeDirs(recyclerView, viewHolder);
+            }
+
             @Override
             public void onSwiped(@NonNull RecyclerView.ViewHolder viewHolder, int direction) {
                 int position = viewHolder.getAdapterPosition();
                 Event event = eventAdapter.getEventAt(position);
+                if (event == null) return;
                 deleteEvent(event);
                 eventAdapter.removeEvent(position);
             }
@@ -420,6 +434,7 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
     @Override
     public void onDeleteClick(int position) {
         Event event = eventAdapter.getEventAt(position);
+        if (event == null) return;
         deleteEvent(event);
         eventAdapter.removeEvent(position);
     }
@@ -429,29 +444,10 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
      *
      * @param event 要删除的事件
      */
+    @RequiresApi(api = Build.VERSION_CODES.O)
     private void deleteEvent(Event event) {
-        // 从存储中删除事件
-        SharedPreferences prefs = requireActivity().getSharedPreferences("events_prefs", Context.MODE_PRIVATE);
-        String dateKey = event.getDate().toString();
-
-        Gson gson = GsonUtils.getGson();
-        Type type = new TypeToken<ArrayList<Event>>(){}.getType();
-
-        String eventJson = prefs.getString(dateKey, "[]");
-        List<Event> events = gson.fromJson(eventJson, type);
-
-        // 通过 ID 查找并删除事件
-        for (Iterator<Event> iterator = events.iterator(); iterator.hasNext();) {
-            Event e = iterator.next();
-            if (e.getId().equals(event.getId())) {
-                iterator.remove();
-                break;
-            }
-        }
-
-        // 保存更新后的事件列表
-        String updatedJson = gson.toJson(events);
-        prefs.edit().putString(dateKey, updatedJson).apply();
+        // 从事件仓库中删除事件
+        EventRepository.getInstance(requireActivity()).deleteEvent(event);
 
         // 通知日历界面更新
         if (getActivity() instanceof MainActivity) {
@@ -531,7 +527,10 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
             Log.d(TAG, "今日日期: " + today);
             Log.d(TAG, "日期是否相等: " + eventDate.isEqual(today));
 
-            if (eventDate.isEqual(today)) {
+            // 重复事件可能在今天有实例，即使首个实例不在今天也需要刷新
+            boolean recurringToday = event.getRecurrence() != null
+                    && event.getRecurrence().occursOn(event.getEpochDay(), (int) today.toEpochDay());
+            if (eventDate.isEqual(today) || recurringToday) {
                 Log.d(TAG, "事件属于今日，刷新 UI");
                 requireActivity().runOnUiThread(() -> {
                     refreshEvents();
@@ -581,50 +580,12 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
 
         LocalDate today = LocalDate.now();
         List<Event> events = loadEventsForDate(today);
-        events.sort(Comparator.comparing(Event::getStartTime)); // 使用新的 getter
+        Collections.sort(events); // 使用 Event 基于原始字段的自然顺序，按开始时间排序
 
         Log.d(TAG, "找到 " + events.size() + " 个今日事件");
 
-        // 更新适配器数据
-        eventsList.clear();
-        eventsList.addAll(events);
-        eventAdapter.notifyDataSetChanged();
-
-        // 如果没有事件，显示空视图提示
-        if (events.isEmpty()) {
-            // 创建并设置空视图
-            TextView emptyView = new TextView(getContext());
-            emptyView.setText("今日无日程安排");
-            emptyView.setContentDescription("今日无日程安排");
-            emptyView.setImportantForAccessibility(View.IMPORTANT_FOR_ACCESSIBILITY_YES);
-            emptyView.setTextSize(18);
-            emptyView.setGravity(android.view.Gravity.CENTER);
-            emptyView.setPadding(0, 32, 0, 32);
-
-            // 添加到 RecyclerView 的父容器中
-            if (eventsRecyclerView.getParent() instanceof ViewGroup) {
-                ViewGroup parent = (ViewGroup) eventsRecyclerView.getParent();
-                // 移除之前的空视图（如果存在）
-                for (int i = 0; i < parent.getChildCount(); i++) {
-                    if (parent.getChildAt(i) instanceof TextView) {
-                        parent.removeViewAt(i);
-                        break;
-                    }
-                }
-                parent.addView(emptyView);
-            }
-        } else {
-            // 移除空视图（如果存在）
-            if (eventsRecyclerView.getParent() instanceof ViewGroup) {
-                ViewGroup parent = (ViewGroup) eventsRecyclerView.getParent();
-                for (int i = 0; i < parent.getChildCount(); i++) {
-                    if (parent.getChildAt(i) instanceof TextView) {
-                        parent.removeViewAt(i);
-                        break;
-                    }
-                }
-            }
-        }
+        // 提交新列表，适配器在后台比较后只刷新变化的行，没有事件时显示空列表提示
+        eventAdapter.submitList(events);
 
         updateDataSummary();
         // 停止刷新动画
@@ -648,10 +609,12 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
         int totalTasks = 0;
         int completedTasks = 0;
         LocalTime now = LocalTime.now();
+        int nowMinute = now.getHour() * 60 + now.getMinute();
 
-        // 遍历本周所有日期
-        for (LocalDate date = startOfWeek; !date.isAfter(endOfWeek); date = date.plusDays(1)) {
-            List<Event> events = loadEventsForDate(date);
+        // 一次性查询本周的事件，只遍历有事件的日期
+        for (Map.Entry<LocalDate, List<Event>> entry : loadEventsInRange(startOfWeek, endOfWeek).entrySet()) {
+            LocalDate date = entry.getKey();
+            List<Event> events = entry.getValue();
             totalTasks += events.size();
 
             if (date.isBefore(today)) {
@@ -660,7 +623,7 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
             } else if (date.isEqual(today)) {
                 // 今天的任务根据结束时间判断
                 for (Event event : events) {
-                    if (event.getEndTimeAsLocalTime() != null && event.getEndTimeAsLocalTime().isBefore(now)) {
+                    if (event.getEndMinute() != Event.NO_TIME && event.getEndMinute() < nowMinute) {
                         completedTasks++;
                     }
                 }
@@ -714,25 +677,24 @@ public class TodayFragment extends Fragment implements MainActivity.OnEventAdded
             return new ArrayList<>();
         }
 
-        SharedPreferences prefs = requireActivity().getSharedPreferences("events_prefs", Context.MODE_PRIVATE);
-        String eventJson = prefs.getString(date.toString(), "[]");
-
-        // 使用自定义的 Gson 实例
-        Gson gson = GsonUtils.getGson();
-        Type type = new TypeToken<ArrayList<Event>>(){}.getType();
-
-        // 过滤无效事件
-        List<Event> events = gson.fromJson(eventJson, type);
-        List<Event> validEvents = new ArrayList<>();
+        // 从事件仓库中获取该日期的事件，仓库只返回有效事件
+        return EventRepository.getInstance(requireActivity()).getEventsForDate(date);
+    }
 
-        for (Event event : events) {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                if (event.getDate() != null && event.getStartTimeAsLocalTime() != null && event.getEndTimeAsLocalTime() != null) {
-                    validEvents.add(event);
-                }
-            }
+    /**
+     * 加载指定日期范围内的事件。
+     *
+     * @param from 起始日期（包含）
+     * @param to   结束日期（包含）
+     * @return 按日期升序排列的日期到事件列表的映射
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private NavigableMap<LocalDate, List<Event>> loadEventsInRange(LocalDate from, LocalDate to) {
+        if (getActivity() == null) {
+            return new TreeMap<>();
         }
 
-        return validEvents;
+        // 仓库只返回有效事件，这里不需要再逐个校验
+        return EventRepository.getInstance(requireActivity()).query(from, to);
     }
 }
\ No newline at end of file